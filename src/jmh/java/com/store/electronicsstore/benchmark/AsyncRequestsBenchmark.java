@@ -0,0 +1,89 @@
+package com.store.electronicsstore.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.store.electronicsstore.service.ProductService;
+
+/**
+ * Throughput of GET /v1/product/{pid} with 64 concurrent clients against a server limited to 8 request threads,
+ * with every statement delayed as if it went to a remote MySQL server. The caches are off, so each request runs
+ * three statements. Blocking, the 8 request threads bound the concurrency; asynchronous, the 64 database threads
+ * do. The gap shows once the time spent waiting on the database outweighs the CPU time of a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class AsyncRequestsBenchmark {
+
+	private static final int CATALOG_SIZE = 1000;
+
+	@Param({ "false", "true" })
+	private boolean async;
+
+	/**
+	 * Delay per executed statement.
+	 */
+	@Param({ "2", "20" })
+	private long databaseLatencyMillis;
+
+	private ConfigurableApplicationContext context;
+
+	private String baseUrl;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkCatalog.start("requests" + async + databaseLatencyMillis,
+				SlowDatabase.withLatency(databaseLatencyMillis),
+				"store.http.async.enabled=" + async, "store.http.async.database-threads=64",
+				"server.tomcat.max-threads=8", "spring.datasource.hikari.maximum-pool-size=72",
+				"store.cache.enabled=false", "store.cache.entity.enabled=false", "store.search.enabled=false");
+		BenchmarkCatalog.fill(context.getBean(ProductService.class), CATALOG_SIZE);
+		baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int getProductById() throws IOException {
+		URL url = new URL(baseUrl + "/v1/product/P" + ThreadLocalRandom.current().nextInt(CATALOG_SIZE));
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		int status = connection.getResponseCode();
+		// read to the end, so the connection is kept alive for the next request
+		try (InputStream body = connection.getInputStream()) {
+			byte[] buffer = new byte[4096];
+			while (body.read(buffer) != -1) {
+				// discard
+			}
+		}
+		return status;
+	}
+}
@@ -0,0 +1,81 @@
+package com.store.electronicsstore.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.store.electronicsstore.ElectronicsStoreApplication;
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Boots the application on a random port against an in-memory H2 database and fills the catalog.
+ */
+final class BenchmarkCatalog {
+
+	private BenchmarkCatalog() {
+	}
+
+	/**
+	 * @param name            name of the in-memory database, one per catalog.
+	 * @param extraProperties additional {@code key=value} properties.
+	 * @return a started application context.
+	 */
+	static ConfigurableApplicationContext start(String name, String... extraProperties) {
+		return start(name, context -> {
+		}, extraProperties);
+	}
+
+	/**
+	 * @param name            name of the in-memory database, one per catalog.
+	 * @param initializer     applied to the application context before it is refreshed.
+	 * @param extraProperties additional {@code key=value} properties.
+	 * @return a started application context.
+	 */
+	static ConfigurableApplicationContext start(String name,
+			ApplicationContextInitializer<ConfigurableApplicationContext> initializer, String... extraProperties) {
+		List<String> properties = new ArrayList<>();
+		properties.add("spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+		properties.add("spring.jpa.show-sql=false");
+		properties.add("logging.level.root=WARN");
+		properties.add("logging.file=target/benchmark.log");
+		properties.add("server.port=0");
+		for (String property : extraProperties) {
+			properties.add(property);
+		}
+		// command line arguments, unlike default properties, take precedence over application.yaml
+		return new SpringApplicationBuilder(ElectronicsStoreApplication.class)
+				.initializers(initializer)
+				.run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+	}
+
+	/**
+	 * Adds {@code size} products with the ids {@code P0..P(size-1)} through the bulk ingestion.
+	 *
+	 * @param productService
+	 * @param size
+	 */
+	static void fill(ProductService productService, int size) {
+		List<ProductDto> chunk = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			chunk.add(product("P" + i));
+			if (chunk.size() == 5000 || i == size - 1) {
+				productService.addNewProducts(chunk);
+				chunk.clear();
+			}
+		}
+	}
+
+	static ProductDto product(String productId) {
+		return ProductDto.builder()
+				.productId(productId)
+				.name("Smart TV " + productId)
+				.manufacturer("Samsung")
+				.price(499.99f)
+				.inventory(25)
+				.build();
+	}
+}
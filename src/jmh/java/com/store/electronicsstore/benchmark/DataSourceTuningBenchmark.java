@@ -0,0 +1,103 @@
+package com.store.electronicsstore.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.BulkProductResultDto;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Throughput of 32 concurrent clients with the default datasource settings and with the {@code prod} profile. The
+ * product caches are off, so every call reaches the database. H2 ignores the MySQL driver settings of the profile;
+ * what is measured is the pool sizing and the Hibernate settings. A delay per statement stands in for the round trip
+ * to MySQL, which the in-memory database does not have.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class DataSourceTuningBenchmark {
+
+	private static final int CATALOG_SIZE = 10000;
+
+	@Param({ "default", "prod" })
+	private String profile;
+
+	/**
+	 * Delay per executed statement.
+	 */
+	@Param({ "0", "1" })
+	private long databaseLatencyMillis;
+
+	private final AtomicLong newProductIds = new AtomicLong();
+
+	private ConfigurableApplicationContext context;
+
+	private ProductService productService;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkCatalog.start("datasource" + profile + databaseLatencyMillis,
+				SlowDatabase.withLatency(databaseLatencyMillis), "spring.profiles.active=" + profile,
+				"store.cache.enabled=false", "store.cache.entity.enabled=false", "store.search.enabled=false");
+		productService = context.getBean(ProductService.class);
+		BenchmarkCatalog.fill(productService, CATALOG_SIZE);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ProductDto getProductById() {
+		return productService.getProductById("P" + ThreadLocalRandom.current().nextInt(CATALOG_SIZE));
+	}
+
+	/**
+	 * Id lists of 1 to 50 products, each length a different IN query unless the lists are padded.
+	 */
+	@Benchmark
+	public ProductBatchDto getProductsByIds() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int size = 1 + random.nextInt(50);
+		List<String> productIds = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			productIds.add("P" + random.nextInt(CATALOG_SIZE));
+		}
+		return productService.getProductsByIds(productIds);
+	}
+
+	@Benchmark
+	public BulkProductResultDto addNewProducts() {
+		List<ProductDto> productDtos = new ArrayList<>(100);
+		for (int i = 0; i < 100; i++) {
+			productDtos.add(BenchmarkCatalog.product("N" + newProductIds.incrementAndGet()));
+		}
+		return productService.addNewProducts(productDtos);
+	}
+}
@@ -0,0 +1,463 @@
+package com.store.electronicsstore.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Compares the execution modes of the request handling under 1k, 5k and 10k concurrent clients: throughput, share
+ * of requests shed with 429, the latency percentiles of the successful ones and the requests still unanswered after
+ * the whole measurement. Each mode gets a fresh
+ * {@link LoadTestServer} process. The clients are keep-alive HTTP/1.1 connections driven by a single selector thread,
+ * each sending GET /v1/product/{pid} again as soon as the previous response arrived, or once the {@code Retry-After}
+ * of a 429 passed.
+ * <p>
+ * The clients are closed-loop, so a stalled server also slows down the arrival of requests and the percentiles are a
+ * lower bound of what open-loop traffic would see. Server and clients share the machine.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec@load-test}, selecting modes and client counts with
+ * {@code -Dload.modes=platform,bounded,virtual,virtual-limited -Dload.clients=1000,5000,10000}. The virtual modes need
+ * {@code -Dload.java=<java 21>/bin/java} and 10k clients need {@code ulimit -n} above 10k in both processes.
+ */
+public final class ExecutionModeLoadTest {
+
+	private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	private ExecutionModeLoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> modes = split(System.getProperty("load.modes", "platform,bounded,virtual,virtual-limited"));
+		List<Integer> clientCounts = split(System.getProperty("load.clients", "1000,5000,10000")).stream()
+				.map(Integer::valueOf).collect(Collectors.toList());
+		long databaseLatencyMillis = Long.getLong("load.databaseLatencyMillis", 20);
+		int warmupSeconds = Integer.getInteger("load.warmupSeconds", 15);
+		int measurementSeconds = Integer.getInteger("load.measurementSeconds", 30);
+		int maxClients = clientCounts.stream().mapToInt(Integer::intValue).max().orElse(0);
+
+		List<String> rows = new ArrayList<>();
+		for (String mode : modes) {
+			Process server = startServer(mode, databaseLatencyMillis, maxClients);
+			try {
+				int port = awaitPort(server);
+				for (int clients : clientCounts) {
+					Result result = new LoadGenerator(new InetSocketAddress("localhost", port), clients)
+							.run(warmupSeconds, measurementSeconds);
+					rows.add(result.format(mode, clients));
+					System.out.println(rows.get(rows.size() - 1));
+				}
+			} finally {
+				server.destroy();
+				if (!server.waitFor(1, TimeUnit.MINUTES)) {
+					server.destroyForcibly().waitFor();
+				}
+			}
+		}
+
+		System.out.println();
+		System.out.println("database latency " + databaseLatencyMillis + " ms per statement, " + measurementSeconds
+				+ " s measured after " + warmupSeconds + " s warmup");
+		System.out.println(Result.HEADER);
+		rows.forEach(System.out::println);
+	}
+
+	private static List<String> split(String list) {
+		return Arrays.stream(list.split(",")).map(String::trim).filter(item -> !item.isEmpty())
+				.collect(Collectors.toList());
+	}
+
+	private static Process startServer(String mode, long databaseLatencyMillis, int maxClients) throws IOException {
+		String java = System.getProperty("java.home") + "/bin/java";
+		return new ProcessBuilder(java, "-Xmx1g", "-classpath", System.getProperty("java.class.path"),
+				LoadTestServer.class.getName(), mode, String.valueOf(databaseLatencyMillis),
+				String.valueOf(maxClients))
+				.redirectErrorStream(true)
+				.start();
+	}
+
+	/**
+	 * Waits for the server to report its port, then keeps draining its output in the background.
+	 */
+	private static int awaitPort(Process server) throws IOException {
+		BufferedReader output = new BufferedReader(
+				new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+		String line;
+		while ((line = output.readLine()) != null) {
+			if (line.startsWith(LoadTestServer.PORT_PREFIX)) {
+				Thread drain = new Thread(() -> {
+					try {
+						while (output.readLine() != null) {
+							// discard
+						}
+					} catch (IOException e) {
+						// the server is gone
+					}
+				}, "load-test-server-output");
+				drain.setDaemon(true);
+				drain.start();
+				return Integer.parseInt(line.substring(LoadTestServer.PORT_PREFIX.length()).trim());
+			}
+			System.out.println("server: " + line);
+		}
+		throw new IllegalStateException("The load test server exited with " + waitFor(server));
+	}
+
+	private static int waitFor(Process server) {
+		try {
+			return server.waitFor();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	private static final class Result {
+
+		private static final String HEADER = String.format("%-15s %8s %8s %8s %8s %8s %10s %10s %10s %10s", "mode",
+				"clients", "ok/s", "429/s", "errors", "stalled", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+		private final Histogram latencies;
+
+		private final long ok;
+
+		private final long rejected;
+
+		private final long errors;
+
+		private final long stalled;
+
+		private final int seconds;
+
+		private Result(Histogram latencies, long ok, long rejected, long errors, long stalled, int seconds) {
+			this.latencies = latencies;
+			this.ok = ok;
+			this.rejected = rejected;
+			this.errors = errors;
+			this.stalled = stalled;
+			this.seconds = seconds;
+		}
+
+		private String format(String mode, int clients) {
+			return String.format("%-15s %8d %8.0f %8.0f %8d %8d %10.1f %10.1f %10.1f %10.1f", mode, clients,
+					(double) ok / seconds, (double) rejected / seconds, errors, stalled, millis(50), millis(99),
+					millis(99.9), latencies.getMaxValue() / 1000.0);
+		}
+
+		private double millis(double percentile) {
+			return latencies.getValueAtPercentile(percentile) / 1000.0;
+		}
+	}
+
+	/**
+	 * Keep-alive connections sending one request at a time, all served by one selector.
+	 */
+	private static final class LoadGenerator {
+
+		private final InetSocketAddress address;
+
+		private final int clients;
+
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+		private final Histogram latencies = new Histogram(MAX_LATENCY_MICROS, 3);
+
+		private final Deque<Client> disconnected = new ArrayDeque<>();
+
+		private final PriorityQueue<Client> waiting = new PriorityQueue<>(
+				(a, b) -> Long.compare(a.retryAt, b.retryAt));
+
+		private Selector selector;
+
+		private long measurementStart;
+
+		private long measurementEnd;
+
+		private long ok;
+
+		private long rejected;
+
+		private long errors;
+
+		private LoadGenerator(InetSocketAddress address, int clients) {
+			this.address = address;
+			this.clients = clients;
+		}
+
+		private Result run(int warmupSeconds, int measurementSeconds) throws IOException {
+			measurementStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+			measurementEnd = measurementStart + TimeUnit.SECONDS.toNanos(measurementSeconds);
+			selector = Selector.open();
+			long stalled = 0;
+			try {
+				for (int i = 0; i < clients; i++) {
+					disconnected.add(new Client());
+				}
+				while (System.nanoTime() < measurementEnd) {
+					// only those disconnected so far, a refused connection is retried after the next select
+					for (int i = disconnected.size(); i > 0; i--) {
+						connect(disconnected.poll());
+					}
+					long now = System.nanoTime();
+					while (!waiting.isEmpty() && waiting.peek().retryAt <= now) {
+						resend(waiting.poll());
+					}
+					long untilRetry = waiting.isEmpty() ? 100
+							: TimeUnit.NANOSECONDS.toMillis(waiting.peek().retryAt - now);
+					selector.select(Math.max(1, Math.min(100, untilRetry)));
+					for (SelectionKey key : selector.selectedKeys()) {
+						handle(key);
+					}
+					selector.selectedKeys().clear();
+				}
+				for (SelectionKey key : selector.keys()) {
+					Client client = (Client) key.attachment();
+					if (client.request != null && client.sentAt < measurementStart) {
+						stalled++;
+					}
+				}
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					key.channel().close();
+				}
+				selector.close();
+			}
+			return new Result(latencies, ok, rejected, errors, stalled, measurementSeconds);
+		}
+
+		private void connect(Client client) throws IOException {
+			SocketChannel channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			client.channel = channel;
+			client.length = 0;
+			try {
+				if (channel.connect(address)) {
+					channel.register(selector, 0, client);
+					send(client);
+				} else {
+					channel.register(selector, SelectionKey.OP_CONNECT, client);
+				}
+			} catch (IOException e) {
+				fail(client);
+			}
+		}
+
+		private void handle(SelectionKey key) throws IOException {
+			Client client = (Client) key.attachment();
+			if (!key.isValid()) {
+				return;
+			}
+			try {
+				if (key.isConnectable()) {
+					client.channel.finishConnect();
+					send(client);
+				} else if (key.isWritable()) {
+					write(client);
+				} else if (key.isReadable()) {
+					read(client);
+				}
+			} catch (IOException e) {
+				fail(client);
+			}
+		}
+
+		private void send(Client client) throws IOException {
+			String path = "/v1/product/P" + ThreadLocalRandom.current().nextInt(LoadTestServer.CATALOG_SIZE);
+			client.request = ByteBuffer.wrap(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+					.getBytes(StandardCharsets.US_ASCII));
+			client.sentAt = System.nanoTime();
+			write(client);
+		}
+
+		private void write(Client client) throws IOException {
+			client.channel.write(client.request);
+			client.channel.keyFor(selector)
+					.interestOps(client.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+
+		private void read(Client client) throws IOException {
+			readBuffer.clear();
+			int read = client.channel.read(readBuffer);
+			if (read < 0) {
+				// closed while a request was pending is a failure, closed while idle is a keep-alive timeout
+				if (client.request != null) {
+					fail(client);
+				} else {
+					reconnect(client);
+				}
+				return;
+			}
+			readBuffer.flip();
+			client.append(readBuffer);
+			int status = client.completeResponseStatus();
+			if (status < 0) {
+				return;
+			}
+			long completed = System.nanoTime();
+			if (client.sentAt >= measurementStart && completed < measurementEnd) {
+				if (status == 200) {
+					ok++;
+					latencies.recordValue(Math.min(MAX_LATENCY_MICROS, (completed - client.sentAt) / 1000));
+				} else if (status == 429) {
+					rejected++;
+				} else {
+					errors++;
+				}
+			}
+			boolean close = client.closeAfterResponse;
+			client.length = 0;
+			client.request = null;
+			if (close) {
+				reconnect(client);
+			} else if (status == 429 && client.retryAfterSeconds > 0) {
+				client.retryAt = completed + TimeUnit.SECONDS.toNanos(client.retryAfterSeconds);
+				waiting.add(client);
+			} else {
+				send(client);
+			}
+		}
+
+		private void resend(Client client) throws IOException {
+			try {
+				send(client);
+			} catch (IOException e) {
+				fail(client);
+			}
+		}
+
+		private void fail(Client client) throws IOException {
+			if (System.nanoTime() >= measurementStart) {
+				errors++;
+			}
+			reconnect(client);
+		}
+
+		private void reconnect(Client client) throws IOException {
+			client.channel.close();
+			client.request = null;
+			disconnected.add(client);
+		}
+	}
+
+	/**
+	 * One connection and the response read so far.
+	 */
+	private static final class Client {
+
+		private SocketChannel channel;
+
+		private ByteBuffer request;
+
+		private long sentAt;
+
+		private byte[] response = new byte[1024];
+
+		private int length;
+
+		private boolean closeAfterResponse;
+
+		private int retryAfterSeconds;
+
+		private long retryAt;
+
+		private void append(ByteBuffer bytes) {
+			if (length + bytes.remaining() > response.length) {
+				response = Arrays.copyOf(response, Math.max(response.length * 2, length + bytes.remaining()));
+			}
+			int count = bytes.remaining();
+			bytes.get(response, length, count);
+			length += count;
+		}
+
+		/**
+		 * @return the status of the response once it has been read completely, -1 before.
+		 */
+		private int completeResponseStatus() {
+			int headerEnd = indexOf("\r\n\r\n", 0);
+			if (headerEnd < 0) {
+				return -1;
+			}
+			String headers = new String(response, 0, headerEnd, StandardCharsets.US_ASCII).toLowerCase();
+			int bodyStart = headerEnd + 4;
+			String contentLengthHeader = headerValue(headers, "content-length");
+			int contentLength = contentLengthHeader == null ? -1 : Integer.parseInt(contentLengthHeader);
+			if (contentLength >= 0) {
+				if (length < bodyStart + contentLength) {
+					return -1;
+				}
+			} else if (headers.contains("\r\ntransfer-encoding: chunked")) {
+				if (!chunkedBodyComplete(bodyStart)) {
+					return -1;
+				}
+			}
+			closeAfterResponse = "close".equals(headerValue(headers, "connection"));
+			String retryAfter = headerValue(headers, "retry-after");
+			retryAfterSeconds = retryAfter == null ? 0 : Integer.parseInt(retryAfter);
+			return Integer.parseInt(headers.substring(9, 12));
+		}
+
+		/**
+		 * @param headers lower case header block.
+		 * @param name    lower case header name.
+		 * @return value of the header, null when absent.
+		 */
+		private static String headerValue(String headers, String name) {
+			int header = headers.indexOf("\r\n" + name + ":");
+			if (header < 0) {
+				return null;
+			}
+			int valueStart = header + name.length() + 3;
+			int valueEnd = headers.indexOf("\r\n", valueStart);
+			return headers.substring(valueStart, valueEnd < 0 ? headers.length() : valueEnd).trim();
+		}
+
+		private boolean chunkedBodyComplete(int position) {
+			while (true) {
+				int lineEnd = indexOf("\r\n", position);
+				if (lineEnd < 0) {
+					return false;
+				}
+				String sizeLine = new String(response, position, lineEnd - position, StandardCharsets.US_ASCII);
+				int extension = sizeLine.indexOf(';');
+				int size = Integer.parseInt((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+				if (size == 0) {
+					return indexOf("\r\n\r\n", lineEnd) >= 0;
+				}
+				position = lineEnd + 2 + size + 2;
+				if (position > length) {
+					return false;
+				}
+			}
+		}
+
+		private int indexOf(String token, int from) {
+			byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+			for (int i = from; i <= length - bytes.length; i++) {
+				int j = 0;
+				while (j < bytes.length && response[i + j] == bytes[j]) {
+					j++;
+				}
+				if (j == bytes.length) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.store.electronicsstore.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.store.electronicsstore.service.ProductService;
+
+/**
+ * The application as started by {@link ExecutionModeLoadTest}, in a process of its own so the server and the load
+ * generator each have their own file descriptors for the connections. Every statement is delayed as if it went to a
+ * remote MySQL server and the caches are off, so each request waits on the database three times.
+ * <p>
+ * Arguments: execution mode, delay per statement in milliseconds and the largest number of clients to expect. Prints
+ * {@code port=<port>} once the catalog is filled.
+ */
+final class LoadTestServer {
+
+	static final int CATALOG_SIZE = 1000;
+
+	static final String PORT_PREFIX = "port=";
+
+	/**
+	 * Connections to the database, enough for every database thread of the bounded mode.
+	 */
+	private static final int POOL_SIZE = 64;
+
+	private LoadTestServer() {
+	}
+
+	public static void main(String[] args) {
+		String mode = args[0];
+		long databaseLatencyMillis = Long.parseLong(args[1]);
+		int maxClients = Integer.parseInt(args[2]);
+
+		List<String> properties = new ArrayList<>(Arrays.asList(
+				"server.tomcat.max-connections=" + (maxClients + 1000), "server.tomcat.accept-count=4096",
+				"spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+				"spring.datasource.hikari.connection-timeout=60000",
+				"store.cache.enabled=false", "store.cache.entity.enabled=false", "store.search.enabled=false"));
+		properties.addAll(modeProperties(mode));
+
+		ConfigurableApplicationContext context = BenchmarkCatalog.start("load" + mode,
+				SlowDatabase.withLatency(databaseLatencyMillis), properties.toArray(new String[0]));
+		BenchmarkCatalog.fill(context.getBean(ProductService.class), CATALOG_SIZE);
+		System.out.println(PORT_PREFIX + ((WebServerApplicationContext) context).getWebServer().getPort());
+	}
+
+	/**
+	 * <ul>
+	 * <li>{@code platform}: one of Tomcat's 200 platform threads per request, requests beyond that wait unbounded in
+	 * Tomcat's queue.</li>
+	 * <li>{@code bounded}: 16 request threads hand the work to 64 database threads with a queue of 192, requests
+	 * beyond those 256 are answered with 429.</li>
+	 * <li>{@code virtual}: 16 request threads hand the work to a virtual thread per request, requests beyond the
+	 * connection pool wait for a connection. Needs a Java 21 runtime.</li>
+	 * <li>{@code virtual-limited}: the same, with requests beyond 256 answered with 429.</li>
+	 * </ul>
+	 */
+	private static List<String> modeProperties(String mode) {
+		switch (mode) {
+		case "platform":
+			return Arrays.asList("server.tomcat.max-threads=200");
+		case "bounded":
+			return Arrays.asList("server.tomcat.max-threads=16", "store.http.async.enabled=true",
+					"store.http.async.database-threads=" + POOL_SIZE, "store.http.async.queue-capacity=192",
+					"store.http.max-concurrent-requests=256");
+		case "virtual":
+			return Arrays.asList("server.tomcat.max-threads=16", "store.http.async.enabled=true",
+					"store.http.async.virtual-threads=true");
+		case "virtual-limited":
+			return Arrays.asList("server.tomcat.max-threads=16", "store.http.async.enabled=true",
+					"store.http.async.virtual-threads=true", "store.http.max-concurrent-requests=256");
+		default:
+			throw new IllegalArgumentException("Unknown execution mode " + mode);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.store.electronicsstore.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Encode time of a product list as JSON, Smile and CBOR, each with and without gzip as applied by the server
+ * compression. The payload size of every combination is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+	@Param({ "10000", "100000" })
+	private int productCount;
+
+	@Param({ "json", "smile", "cbor" })
+	private String format;
+
+	@Param({ "false", "true" })
+	private boolean gzip;
+
+	private ObjectMapper objectMapper;
+
+	private List<ProductDto> productDtos;
+
+	@Setup
+	public void setup() throws IOException {
+		switch (format) {
+		case "smile":
+			objectMapper = new ObjectMapper(new SmileFactory());
+			break;
+		case "cbor":
+			objectMapper = new ObjectMapper(new CBORFactory());
+			break;
+		default:
+			objectMapper = new ObjectMapper();
+		}
+		productDtos = new ArrayList<>(productCount);
+		for (int i = 0; i < productCount; i++) {
+			productDtos.add(BenchmarkCatalog.product("P" + i));
+		}
+		System.out.printf("%n%d products as %s%s: %d bytes%n", productCount, format, gzip ? "+gzip" : "",
+				encode().length);
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(productCount * 64);
+		try (OutputStream out = gzip ? new GZIPOutputStream(bytes, 8192) : bytes) {
+			objectMapper.writeValue(out, productDtos);
+		}
+		return bytes.toByteArray();
+	}
+}
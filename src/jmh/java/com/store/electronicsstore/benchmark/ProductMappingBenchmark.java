@@ -0,0 +1,97 @@
+package com.store.electronicsstore.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.electronicsstore.domain.Product;
+import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.mapper.ProductMapper;
+
+/**
+ * Per-object cost of the {@link Product} / {@link ProductDto} conversion, reflective through {@link ModelMapper} and
+ * precompiled through {@link ProductMapper}, and of serializing product lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMappingBenchmark {
+
+	private final ModelMapper modelMapper = new ModelMapper();
+
+	private final ProductMapper productMapper = new ProductMapper(new ModelMapper());
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private Product product;
+
+	private ProductDto productDto;
+
+	@Setup
+	public void setup() {
+		productDto = BenchmarkCatalog.product("P1");
+		product = modelMapper.map(productDto, Product.class);
+		product.setId(1L);
+	}
+
+	@State(Scope.Benchmark)
+	public static class ProductList {
+
+		@Param({ "100", "1000", "10000" })
+		private int listSize;
+
+		private List<ProductDto> productDtos;
+
+		@Setup
+		public void setup() {
+			productDtos = new ArrayList<>(listSize);
+			for (int i = 0; i < listSize; i++) {
+				productDtos.add(BenchmarkCatalog.product("P" + i));
+			}
+		}
+	}
+
+	@Benchmark
+	public ProductDto modelMapperProductToDto() {
+		return modelMapper.map(product, ProductDto.class);
+	}
+
+	@Benchmark
+	public Product modelMapperDtoToProduct() {
+		return modelMapper.map(productDto, Product.class);
+	}
+
+	@Benchmark
+	public ProductDto productMapperProductToDto() {
+		return productMapper.toDto(product);
+	}
+
+	@Benchmark
+	public Product productMapperDtoToProduct() {
+		return productMapper.toEntity(productDto);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public byte[] jacksonSerializeProductList(ProductList list) throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(list.productDtos);
+	}
+}
@@ -0,0 +1,115 @@
+package com.store.electronicsstore.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
+import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.dto.ProductPageDto;
+
+/**
+ * Hot paths of {@link ProductService} against an embedded H2 catalog of several sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	private int catalogSize;
+
+	/**
+	 * Whether product lookups go through the product cache and the Hibernate second-level cache.
+	 */
+	@Param({ "true", "false" })
+	private boolean cacheEnabled;
+
+	private final AtomicLong newProductIds = new AtomicLong();
+
+	private ConfigurableApplicationContext context;
+
+	private ProductService productService;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkCatalog.start("products" + catalogSize + cacheEnabled,
+				"store.cache.enabled=" + cacheEnabled, "store.cache.entity.enabled=" + cacheEnabled);
+		productService = context.getBean(ProductService.class);
+		BenchmarkCatalog.fill(productService, catalogSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ProductDto getProductById() {
+		return productService.getProductById("P" + ThreadLocalRandom.current().nextInt(catalogSize));
+	}
+
+	/**
+	 * Walks the whole catalog page by page, as a client of GET /v1/products does.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 10)
+	public void getAllProducts(Blackhole blackhole) {
+		String cursor = null;
+		do {
+			ProductPageDto page = productService.getAllProducts(cursor, null);
+			blackhole.consume(page.getProducts());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+	}
+
+	/**
+	 * A cart of 50 products resolved with one call.
+	 */
+	@Benchmark
+	public ProductBatchDto getProductsByIds() {
+		List<String> productIds = new ArrayList<>(50);
+		for (int i = 0; i < 50; i++) {
+			productIds.add("P" + ThreadLocalRandom.current().nextInt(catalogSize));
+		}
+		return productService.getProductsByIds(productIds);
+	}
+
+	/**
+	 * Free-text query ranking one product above every other one of the catalog.
+	 */
+	@Benchmark
+	public List<ProductDto> searchProductsByText() {
+		return productService.searchProductsByText(
+				"smart tv p" + ThreadLocalRandom.current().nextInt(catalogSize), null);
+	}
+
+	@Benchmark
+	public void addNewProduct() {
+		productService.addNewProduct(BenchmarkCatalog.product("N" + newProductIds.incrementAndGet()));
+	}
+}
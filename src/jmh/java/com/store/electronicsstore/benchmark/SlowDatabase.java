@@ -0,0 +1,90 @@
+package com.store.electronicsstore.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Puts a fixed delay in front of every statement the connection pool runs against the in-memory H2 database, as a
+ * stand-in for the network round trip to a MySQL server.
+ */
+final class SlowDatabase {
+
+	private SlowDatabase() {
+	}
+
+	/**
+	 * @param latencyMillis delay per executed statement.
+	 * @return initializer making the pool of the application connect through the delay.
+	 */
+	static ApplicationContextInitializer<ConfigurableApplicationContext> withLatency(long latencyMillis) {
+		return context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				if (bean instanceof HikariDataSource) {
+					HikariDataSource pool = (HikariDataSource) bean;
+					JdbcDataSource h2 = new JdbcDataSource();
+					h2.setURL(pool.getJdbcUrl());
+					h2.setUser(pool.getUsername());
+					h2.setPassword(pool.getPassword());
+					pool.setDataSource(new DelayingDataSource(h2, latencyMillis));
+				}
+				return bean;
+			}
+		});
+	}
+
+	private static final class DelayingDataSource extends DelegatingDataSource {
+
+		private final long latencyMillis;
+
+		private DelayingDataSource(DataSource target, long latencyMillis) {
+			super(target);
+			this.latencyMillis = latencyMillis;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return wrap(Connection.class, super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String user, String password) throws SQLException {
+			return wrap(Connection.class, super.getConnection(user, password));
+		}
+
+		private <T> T wrap(Class<T> type, Object delegate) {
+			InvocationHandler handler = (proxy, method, args) -> {
+				if (method.getName().startsWith("execute")) {
+					TimeUnit.MILLISECONDS.sleep(latencyMillis);
+				}
+				Object result = invoke(delegate, method, args);
+				return result instanceof PreparedStatement ? wrap(PreparedStatement.class, result) : result;
+			};
+			return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+		}
+
+		private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.store.electronicsstore.service.inventory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Acknowledged journal appends per second with 8 adjusting threads, with and without forcing every append to
+ * disk. Lives in the package of the journal, which is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class InventoryJournalBenchmark {
+
+	@Param({ "true", "false" })
+	private boolean fsync;
+
+	private Path directory;
+
+	private InventoryJournal journal;
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("journal");
+		journal = new InventoryJournal(directory, "benchmark", fsync);
+		journal.open(0);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		journal.close();
+		journal.deleteUpTo(journal.currentSegment());
+		Files.deleteIfExists(directory.resolve("benchmark-" + journal.currentSegment() + ".journal"));
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public void append() throws IOException {
+		journal.append("A1013", -1);
+	}
+}
@@ -0,0 +1,74 @@
+package com.store.electronicsstore.config;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.store.electronicsstore.domain.Product;
+
+/**
+ * Hibernate second-level cache held in bounded Caffeine caches, plugged in through JCache. Hibernate statistics are
+ * switched on together with the cache and published as the {@code hibernate.*} metrics, including hits, misses and
+ * puts per cache region.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+	/**
+	 * Creates one cache per region of {@link Product}, sized and expired according to {@code store.cache.entity}.
+	 *
+	 * @param storeProperties
+	 * @return cache manager of the second-level cache.
+	 */
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "store.cache.entity.enabled", matchIfMissing = true)
+	public CacheManager entityCacheManager(StoreProperties storeProperties) {
+		StoreProperties.EntityCache settings = storeProperties.getCache().getEntity();
+		// a manager of its own, so application contexts running side by side never share or close each other's caches
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager(URI.create("electronicsstore:" + UUID.randomUUID()), getClass().getClassLoader());
+		for (String region : new String[] { Product.CACHE_REGION, Product.NATURAL_ID_CACHE_REGION }) {
+			CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+			configuration.setMaximumSize(OptionalLong.of(settings.getMaximumSize()));
+			configuration.setExpireAfterWrite(OptionalLong.of(settings.getTtl().toNanos()));
+			// Hibernate caches its own disassembled copy of an entity, there is no need to copy it again per read
+			configuration.setStoreByValue(false);
+			cacheManager.createCache(region, configuration);
+		}
+		return cacheManager;
+	}
+
+	/**
+	 * Hands the cache manager to Hibernate, or turns the second-level cache off when there is none.
+	 *
+	 * @param entityCacheManager
+	 * @return
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer entityCacheCustomizer(ObjectProvider<CacheManager> entityCacheManager) {
+		return properties -> {
+			CacheManager cacheManager = entityCacheManager.getIfAvailable();
+			properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, cacheManager != null);
+			if (cacheManager != null) {
+				properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+				properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+				// every region is created above, a region missing there is a mapping mistake
+				properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+				properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+			}
+		};
+	}
+}
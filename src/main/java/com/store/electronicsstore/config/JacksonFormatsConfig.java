@@ -0,0 +1,45 @@
+package com.store.electronicsstore.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Lets clients ask for Smile ({@code application/x-jackson-smile}) or CBOR ({@code application/cbor}) instead of
+ * JSON through the Accept header. Both are binary encodings of the same data model: no quoting or number parsing,
+ * and repeated field names and short strings are written once and referenced afterwards (Smile). Clients that do not
+ * ask for them keep getting JSON.
+ */
+@Configuration
+public class JacksonFormatsConfig implements WebMvcConfigurer {
+
+	private final List<Jackson2ObjectMapperBuilderCustomizer> customizers;
+
+	@Autowired
+	public JacksonFormatsConfig(List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+		this.customizers = customizers;
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new MappingJackson2SmileHttpMessageConverter(
+				customize(Jackson2ObjectMapperBuilder.smile()).build()));
+		converters.add(new MappingJackson2CborHttpMessageConverter(
+				customize(Jackson2ObjectMapperBuilder.cbor()).build()));
+	}
+
+	/**
+	 * Applies the spring.jackson.* settings, so every format serializes the same way as JSON.
+	 */
+	private Jackson2ObjectMapperBuilder customize(Jackson2ObjectMapperBuilder builder) {
+		customizers.forEach(customizer -> customizer.customize(builder));
+		return builder;
+	}
+}
@@ -0,0 +1,114 @@
+package com.store.electronicsstore.config;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.store.electronicsstore.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends read-only transactions to the read replicas of {@code store.datasource.replicas} and everything else to the
+ * primary of {@code spring.datasource}. Only active with at least one replica, the auto-configured single pool is
+ * used otherwise.
+ */
+@Configuration
+@ConditionalOnProperty(name = "store.datasource.replicas[0].url")
+public class ReplicaRoutingConfig {
+
+	/**
+	 * Creates a pool for the primary, configured like the auto-configured one, and one per replica with the same
+	 * settings apart from url, credentials and connection timeout. Fetching a connection is deferred to the first
+	 * statement of a transaction, once the transaction is known to be read-only or not. This relies on every
+	 * transaction having a session of its own, which is why {@code spring.jpa.open-in-view} is off: a session kept
+	 * open for the whole request would keep the connection of its first transaction, and a write after a read
+	 * would go to the replica of the read.
+	 * <p>
+	 * The routing data source is not a bean of its own: as a second {@link DataSource} bean it would have the
+	 * auto-configured schema initialization look for the application's data source while that is being created.
+	 *
+	 * @param dataSourceProperties
+	 * @param storeProperties
+	 * @param environment
+	 * @param meterRegistry
+	 * @return data source of the application.
+	 */
+	@Bean(destroyMethod = "close")
+	public RoutingDataSourceProxy dataSource(DataSourceProperties dataSourceProperties,
+			StoreProperties storeProperties, Environment environment, MeterRegistry meterRegistry) {
+		StoreProperties.Datasource settings = storeProperties.getDatasource();
+		MicrometerMetricsTrackerFactory metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+		HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class)
+				.build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		if (primary.getPoolName() == null) {
+			primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+		}
+		primary.setMetricsTrackerFactory(metricsTrackerFactory);
+
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		List<StoreProperties.Replica> replicaSettings = settings.getReplicas();
+		for (int i = 0; i < replicaSettings.size(); i++) {
+			StoreProperties.Replica replica = replicaSettings.get(i);
+			HikariConfig config = new HikariConfig();
+			primary.copyStateTo(config);
+			config.setPoolName("replica-" + (i + 1));
+			config.setJdbcUrl(replica.getUrl());
+			if (replica.getUsername() != null) {
+				config.setUsername(replica.getUsername());
+			}
+			if (replica.getPassword() != null) {
+				config.setPassword(replica.getPassword());
+			}
+			// a replica that cannot hand out a connection quickly is skipped in favor of another one or the primary
+			config.setConnectionTimeout(settings.getReplicaConnectionTimeout().toMillis());
+			// a replica that is down at startup is skipped until its health check succeeds, instead of failing startup
+			config.setInitializationFailTimeout(-1);
+			config.setMetricsTrackerFactory(metricsTrackerFactory);
+			replicas.put(config.getPoolName(), new HikariDataSource(config));
+		}
+
+		ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+				settings.getReplicaSelection(), meterRegistry);
+		routingDataSource.startHealthChecks(settings.getHealthCheckInterval());
+		return new RoutingDataSourceProxy(routingDataSource);
+	}
+
+	/**
+	 * Lazy connection proxy that closes the pools behind it together with the application context.
+	 */
+	public static final class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+		private RoutingDataSourceProxy(ReplicaRoutingDataSource routingDataSource) {
+			super(routingDataSource);
+		}
+
+		@Override
+		public ReplicaRoutingDataSource getTargetDataSource() {
+			return (ReplicaRoutingDataSource) super.getTargetDataSource();
+		}
+
+		@Override
+		public void close() {
+			getTargetDataSource().close();
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package com.store.electronicsstore.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Tunables of the store application, bound from the {@code store.*} properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "store")
+public class StoreProperties {
+
+	private Products products = new Products();
+
+	private Cache cache = new Cache();
+
+	private Inventory inventory = new Inventory();
+
+	private Search search = new Search();
+
+	private Http http = new Http();
+
+	private Datasource datasource = new Datasource();
+
+	private Feed feed = new Feed();
+
+	private Stream stream = new Stream();
+
+	private Snapshot snapshot = new Snapshot();
+
+	@Data
+	public static class Products {
+
+		/**
+		 * Number of products returned by a catalog page when the client does not ask for a limit.
+		 */
+		private int defaultPageSize = 50;
+
+		/**
+		 * Upper bound for the page size a client may request.
+		 */
+		private int maxPageSize = 500;
+
+		/**
+		 * Number of inserts sent to the database per JDBC batch during bulk ingestion.
+		 */
+		private int bulkBatchSize = 50;
+
+		/**
+		 * Maximum number of products accepted by one bulk ingestion request.
+		 */
+		private int maxBulkSize = 10000;
+	}
+
+	@Data
+	public static class Cache {
+
+		/**
+		 * Whether product lookups by product id are served from the in-process cache.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Maximum number of product ids kept in the cache.
+		 */
+		private long maximumSize = 10000;
+
+		/**
+		 * How long a found product stays cached.
+		 */
+		private Duration ttl = Duration.ofMinutes(5);
+
+		/**
+		 * How long an unknown product id stays cached as missing.
+		 */
+		private Duration negativeTtl = Duration.ofSeconds(30);
+
+		private EntityCache entity = new EntityCache();
+	}
+
+	@Data
+	public static class EntityCache {
+
+		/**
+		 * Whether Hibernate keeps product entities and their product id to internal id mapping in its second-level
+		 * cache.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Maximum number of entries per cache region.
+		 */
+		private long maximumSize = 100000;
+
+		/**
+		 * How long an entry stays cached, bounds how long changes made by other nodes go unnoticed.
+		 */
+		private Duration ttl = Duration.ofMinutes(5);
+	}
+
+	@Data
+	public static class Http {
+
+		/**
+		 * How long clients may use a product response before revalidating it with its ETag.
+		 */
+		private Duration productMaxAge = Duration.ZERO;
+
+		/**
+		 * How long clients may use a catalog page before revalidating it with its ETag.
+		 */
+		private Duration catalogMaxAge = Duration.ZERO;
+
+		/**
+		 * Maximum number of /v1 requests processed at once, further ones are answered with 429 right away. 0 for no
+		 * limit.
+		 */
+		private int maxConcurrentRequests = 0;
+
+		private Async async = new Async();
+	}
+
+	@Data
+	public static class Async {
+
+		/**
+		 * Whether the /v1 routes hand their database work to a bounded pool and release the request thread while it
+		 * runs.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Number of threads doing the database work of requests, each holds at most one connection.
+		 */
+		private int databaseThreads = 32;
+
+		/**
+		 * Number of requests waiting for a database thread, further requests are answered with 429.
+		 */
+		private int queueCapacity = 1000;
+
+		/**
+		 * Whether the database work of each request runs on a virtual thread of its own instead of the pool of
+		 * database threads, needs a Java 21 runtime. Concurrency is then bounded by the connection pool and
+		 * {@code store.http.max-concurrent-requests}.
+		 */
+		private boolean virtualThreads = false;
+	}
+
+	@Data
+	public static class Datasource {
+
+		/**
+		 * Read replicas of spring.datasource. Read-only transactions go to one of them, everything else to the
+		 * primary. None by default.
+		 */
+		private List<Replica> replicas = new ArrayList<>();
+
+		/**
+		 * How a read-only transaction picks its replica.
+		 */
+		private ReplicaSelection replicaSelection = ReplicaSelection.ROUND_ROBIN;
+
+		/**
+		 * How long reads of a product changed through this node go to the primary, should exceed the replication
+		 * lag.
+		 */
+		private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+		/**
+		 * How often every replica is probed. A replica failing a probe or a connection attempt gets no reads until a
+		 * probe succeeds again.
+		 */
+		private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+		/**
+		 * How long a read waits for a connection of its replica before falling back to the primary.
+		 */
+		private Duration replicaConnectionTimeout = Duration.ofSeconds(1);
+	}
+
+	@Data
+	public static class Replica {
+
+		/**
+		 * JDBC url of the replica.
+		 */
+		private String url;
+
+		/**
+		 * Login user of the replica, the one of the primary when not set.
+		 */
+		private String username;
+
+		/**
+		 * Login password of the replica, the one of the primary when not set.
+		 */
+		private String password;
+	}
+
+	public enum ReplicaSelection {
+
+		/**
+		 * Each replica in turn.
+		 */
+		ROUND_ROBIN,
+
+		/**
+		 * The replica with the fewest connections in use.
+		 */
+		LEAST_LOADED
+	}
+
+	@Data
+	public static class Feed {
+
+		/**
+		 * Number of changes returned by the change feed when the client does not ask for a limit.
+		 */
+		private int defaultBatchSize = 100;
+
+		/**
+		 * Upper bound for the number of changes a client may request at once.
+		 */
+		private int maxBatchSize = 1000;
+
+		/**
+		 * Longest a client may wait for changes in a single request.
+		 */
+		private Duration maxWait = Duration.ofSeconds(30);
+
+		/**
+		 * How often waiting requests look for changes committed through other nodes. Changes committed through this
+		 * node wake them up right away.
+		 */
+		private Duration pollInterval = Duration.ofSeconds(1);
+
+		/**
+		 * How long the feed stops in front of a missing sequence number, whose transaction may still be committing,
+		 * before skipping it as rolled back.
+		 */
+		private Duration gapTimeout = Duration.ofSeconds(5);
+
+		/**
+		 * How long changes are kept. Consumers further behind have to start over from the export.
+		 */
+		private Duration retention = Duration.ofDays(7);
+	}
+
+	@Data
+	public static class Stream {
+
+		/**
+		 * Maximum number of inventory stream subscribers per node, further subscriptions are answered with 429.
+		 */
+		private int maxSubscribers = 50000;
+
+		/**
+		 * Maximum number of products a single inventory stream subscription may follow.
+		 */
+		private int maxProductsPerSubscription = 200;
+
+		/**
+		 * How long a subscription lasts before the stream is closed, clients reconnect and get the current inventories.
+		 */
+		private Duration timeout = Duration.ofMinutes(30);
+
+		/**
+		 * How often idle streams get a comment line, which keeps proxies from closing them and detects gone clients.
+		 */
+		private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+		/**
+		 * Number of threads writing updates to subscribers, a thread moves on from a client not taking data.
+		 */
+		private int sendThreads = 4;
+	}
+
+	@Data
+	public static class Snapshot {
+
+		/**
+		 * Whether product lookups are served from a memory-mapped snapshot of the catalog kept on local disk.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Snapshot file, written on first start and rewritten on every refresh.
+		 */
+		private String path = "./snapshot/products.snapshot";
+
+		/**
+		 * How often the snapshot is rewritten with the products changed since it was written.
+		 */
+		private Duration refreshInterval = Duration.ofMinutes(5);
+
+		/**
+		 * Number of changed products that triggers a rewrite before the refresh interval has passed. Changed
+		 * products are read from the database until the snapshot has been rewritten.
+		 */
+		private int maxChangedProducts = 10000;
+	}
+
+	@Data
+	public static class Search {
+
+		/**
+		 * Whether product names and manufacturers are kept in the in-process full-text index.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Maximum number of distinct tokens indexed per product, bounding the memory used per product.
+		 */
+		private int maxTokensPerProduct = 32;
+	}
+
+	@Data
+	public static class Inventory {
+
+		private WriteBehind writeBehind = new WriteBehind();
+	}
+
+	@Data
+	public static class WriteBehind {
+
+		/**
+		 * Whether inventory adjustments are accumulated in memory and written to the database periodically.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Interval between two flushes of the accumulated adjustments.
+		 */
+		private Duration flushInterval = Duration.ofSeconds(1);
+
+		/**
+		 * Directory of the local journal of acknowledged, not yet flushed adjustments.
+		 */
+		private String journalDir = "./journal";
+
+		/**
+		 * Name of the journal, has to be unique per node sharing the database.
+		 */
+		private String journalName = "inventory";
+
+		/**
+		 * Whether every adjustment is forced to disk before it is acknowledged.
+		 */
+		private boolean fsync = true;
+	}
+}
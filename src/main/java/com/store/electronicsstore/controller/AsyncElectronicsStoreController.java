@@ -0,0 +1,220 @@
+package com.store.electronicsstore.controller;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.filter.MdcTaskDecorator;
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.BulkDeleteResultDto;
+import com.store.electronicsstore.service.dto.BulkProductResultDto;
+import com.store.electronicsstore.service.dto.CacheStatsDto;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
+import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria;
+import com.store.electronicsstore.service.dto.ProductSearchResultDto;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * Non-blocking variant of {@link ElectronicsStoreController}, serving the same routes when
+ * {@code store.http.async.enabled} is set. Every route that reaches the database runs on a bounded pool of database
+ * threads and the request thread is released meanwhile, so a few request threads carry as many concurrent requests
+ * as there are database threads and queued requests. Requests beyond that are answered with 429.
+ * <p>
+ * With {@code store.http.async.virtual-threads} each route runs on a virtual thread of its own instead. Handing
+ * Tomcat itself a virtual thread executor would not help: Tomcat 9.0 holds a monitor for the whole request, which
+ * pins the virtual thread to its carrier while it waits on the database.
+ * <p>
+ * The work itself is done by an {@link ElectronicsStoreController}, so status codes, headers and bodies are the
+ * same in both variants.
+ */
+@RestController
+@Api(value = "Electronic store Controller")
+@ConditionalOnProperty(name = "store.http.async.enabled", havingValue = "true")
+public class AsyncElectronicsStoreController {
+
+	private final ElectronicsStoreController controller;
+
+	private final ExecutorService databaseThreads;
+
+	private final Executor databaseExecutor;
+
+	@Autowired
+	public AsyncElectronicsStoreController(ProductService productService, ObjectMapper objectMapper,
+			StoreProperties storeProperties, MdcTaskDecorator mdcTaskDecorator, MeterRegistry meterRegistry) {
+		this.controller = new ElectronicsStoreController(productService, objectMapper, storeProperties);
+		StoreProperties.Async settings = storeProperties.getHttp().getAsync();
+		if (settings.isVirtualThreads()) {
+			this.databaseThreads = ExecutorServiceMetrics.monitor(meterRegistry,
+					VirtualThreads.newThreadPerTaskExecutor("store-db-vt-"), "store.database", Tags.empty());
+		} else {
+			AtomicInteger threadCount = new AtomicInteger();
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(settings.getDatabaseThreads(),
+					settings.getDatabaseThreads(), 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(settings.getQueueCapacity()), runnable -> {
+						Thread thread = new Thread(runnable, "store-db-" + threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			new ExecutorServiceMetrics(pool, "store.database", Tags.empty()).bindTo(meterRegistry);
+			this.databaseThreads = pool;
+		}
+		this.databaseExecutor = command -> databaseThreads.execute(mdcTaskDecorator.decorate(command));
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		databaseThreads.shutdown();
+		databaseThreads.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@ApiOperation(value = "Add new Product")
+	@PostMapping("/v1/addNewProduct")
+	@ResponseStatus(HttpStatus.CREATED)
+	public CompletableFuture<Void> addNewProduct(@Valid @RequestBody ProductDto productDto) {
+		return run(() -> controller.addNewProduct(productDto));
+	}
+
+	@ApiOperation(value = "Add many new Products at once, reporting the outcome per product")
+	@PostMapping("/v1/addNewProducts")
+	public CompletableFuture<BulkProductResultDto> addNewProducts(@RequestBody List<ProductDto> productDtos) {
+		return supply(() -> controller.addNewProducts(productDtos));
+	}
+
+	@ApiOperation(value = "Overwrite inventory for a given product")
+	@PutMapping("/v1/updateInventory/{pid}/{inventory}")
+	@ResponseStatus(HttpStatus.OK)
+	public CompletableFuture<Void> updateInventory(@PathVariable String pid, @PathVariable int inventory) {
+		return run(() -> controller.updateInventory(pid, inventory));
+	}
+
+	@ApiOperation(value = "Add items to (positive delta) or remove items from (negative delta) the inventory of a "
+			+ "given product, returns the resulting inventory")
+	@PutMapping("/v1/adjustInventory/{pid}/{delta}")
+	public CompletableFuture<Integer> adjustInventory(@PathVariable String pid, @PathVariable int delta) {
+		return supply(() -> controller.adjustInventory(pid, delta));
+	}
+
+	@ApiOperation(value = "Get Product details by productId. Answers 304 when If-None-Match holds the current ETag.")
+	@GetMapping("/v1/product/{pid}")
+	public CompletableFuture<ResponseEntity<ProductDto>> getProductById(@PathVariable String pid,
+			WebRequest request) {
+		return supply(() -> controller.getProductById(pid, request));
+	}
+
+	@ApiOperation(value = "Get All Products, one page at a time. The token for the next page is returned in the "
+			+ ElectronicsStoreController.NEXT_CURSOR_HEADER + " header.")
+	@GetMapping("/v1/products")
+	public CompletableFuture<ResponseEntity<List<ProductDto>>> getAllProducts(
+			@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit,
+			WebRequest request) {
+		return supply(() -> controller.getAllProducts(cursor, limit, request));
+	}
+
+	@ApiOperation(value = "Search Products by manufacturer, name and price range")
+	@GetMapping("/v1/products/search")
+	public CompletableFuture<ProductSearchResultDto> searchProducts(ProductSearchCriteria criteria) {
+		return supply(() -> controller.searchProducts(criteria));
+	}
+
+	@ApiOperation(value = "Retrieve several Products by id at once")
+	@GetMapping("/v1/products/batch")
+	public CompletableFuture<ProductBatchDto> getProductsByIds(@RequestParam("productIds") List<String> productIds) {
+		return supply(() -> controller.getProductsByIds(productIds));
+	}
+
+	@ApiOperation(value = "Search Products by free text over name and manufacturer, best match first")
+	@GetMapping("/v1/products/search/text")
+	public CompletableFuture<List<ProductDto>> searchProductsByText(@RequestParam("q") String query,
+			@RequestParam(required = false) Integer limit) {
+		return supply(() -> controller.searchProductsByText(query, limit));
+	}
+
+	/**
+	 * Already streamed on the task executor of asynchronous requests.
+	 */
+	@ApiOperation(value = "Export all Products as newline delimited JSON")
+	@GetMapping(value = "/v1/products/export", produces = ElectronicsStoreController.NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportAllProducts() {
+		return controller.exportAllProducts();
+	}
+
+	@ApiOperation(value = "Get total inventory of Product by Product Id")
+	@GetMapping("/v1/inventory/{pid}")
+	public CompletableFuture<ResponseEntity<Integer>> getNumberOfProductsById(@PathVariable String pid) {
+		return supply(() -> controller.getNumberOfProductsById(pid));
+	}
+
+	/**
+	 * Served from memory, not worth a thread switch.
+	 */
+	@ApiOperation(value = "Get hit, miss and eviction counters of the product cache")
+	@GetMapping("/v1/productCache/stats")
+	public ResponseEntity<CacheStatsDto> getProductCacheStats() {
+		return controller.getProductCacheStats();
+	}
+
+	@ApiOperation(value = "Update a product")
+	@PutMapping("/v1/updateProduct/{pid}")
+	@ResponseStatus(HttpStatus.OK)
+	public CompletableFuture<Void> updateProduct(@PathVariable String pid,
+			@Valid @RequestBody ProductDto productDto) {
+		return run(() -> controller.updateProduct(pid, productDto));
+	}
+
+	@ApiOperation(value = "Delete a product. Answers 404 when the product does not exist.")
+	@DeleteMapping("/v1/product/{pid}")
+	public CompletableFuture<ResponseEntity<Void>> removeProduct(@PathVariable String pid) {
+		return supply(() -> controller.removeProduct(pid));
+	}
+
+	@ApiOperation(value = "Delete many products at once, unknown product ids are skipped")
+	@PostMapping("/v1/removeProducts")
+	public CompletableFuture<BulkDeleteResultDto> removeProducts(@RequestBody List<String> productIds) {
+		return supply(() -> controller.removeProducts(productIds));
+	}
+
+	/**
+	 * Runs work on a database thread. Throws {@link java.util.concurrent.RejectedExecutionException} right away when
+	 * all database threads are busy and the queue is full.
+	 */
+	private <T> CompletableFuture<T> supply(Supplier<T> work) {
+		return CompletableFuture.supplyAsync(work, databaseExecutor);
+	}
+
+	private CompletableFuture<Void> run(Runnable work) {
+		return CompletableFuture.runAsync(work, databaseExecutor);
+	}
+}
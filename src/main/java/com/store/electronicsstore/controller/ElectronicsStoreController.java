@@ -1,42 +1,85 @@
 package com.store.electronicsstore.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import com.store.electronicsstore.config.StoreProperties;
 import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.BulkDeleteResultDto;
+import com.store.electronicsstore.service.dto.BulkProductResultDto;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
+import com.store.electronicsstore.service.dto.CacheStatsDto;
 import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.dto.ProductPageDto;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria;
+import com.store.electronicsstore.service.dto.ProductSearchResultDto;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
 /**
  * This controller contains method that helps to manage products for a store.
- *
+ * Requests are served on the request thread, unless {@code store.http.async.enabled} replaces this controller with
+ * {@link AsyncElectronicsStoreController}.
  */
 @RestController
 @Api(value = "Electronic store Controller")
+@ConditionalOnProperty(name = "store.http.async.enabled", havingValue = "false", matchIfMissing = true)
 public class ElectronicsStoreController {
 
+	static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	static final String NDJSON_VALUE = "application/x-ndjson";
+
 	private final ProductService productService;
 
+	private final ObjectMapper objectMapper;
+
+	private final CacheControl productCacheControl;
+
+	private final CacheControl catalogCacheControl;
+
 	@Autowired
-	public ElectronicsStoreController(ProductService productService) {
+	public ElectronicsStoreController(ProductService productService, ObjectMapper objectMapper,
+			StoreProperties storeProperties) {
 		this.productService = productService;
+		this.objectMapper = objectMapper;
+		StoreProperties.Http settings = storeProperties.getHttp();
+		this.productCacheControl = CacheControl.maxAge(settings.getProductMaxAge().getSeconds(), TimeUnit.SECONDS)
+				.mustRevalidate();
+		this.catalogCacheControl = CacheControl.maxAge(settings.getCatalogMaxAge().getSeconds(), TimeUnit.SECONDS)
+				.mustRevalidate();
 	}
 
 	@ApiOperation(value = "Add new Product")
@@ -46,34 +89,125 @@ public class ElectronicsStoreController {
 		productService.addNewProduct(productDto);
 	}
 
-	@ApiOperation(value = "Update inventory for a given product")
-	@PutMapping("/v1/updateInventory/{pid}/{quantityToAdd}")
+	@ApiOperation(value = "Add many new Products at once, reporting the outcome per product")
+	@PostMapping("/v1/addNewProducts")
+	public BulkProductResultDto addNewProducts(@RequestBody List<ProductDto> productDtos) {
+		return productService.addNewProducts(productDtos);
+	}
+
+	@ApiOperation(value = "Overwrite inventory for a given product")
+	@PutMapping("/v1/updateInventory/{pid}/{inventory}")
 	@ResponseStatus(HttpStatus.OK)
 	public void updateInventory(@PathVariable @NotBlank @NotNull String pid,
-			@PathVariable @NotBlank @NotNull @Positive int quantityToAdd) {
-		productService.updateQuantity(pid, quantityToAdd);
+			@PathVariable @PositiveOrZero int inventory) {
+		productService.updateQuantity(pid, inventory);
 	}
 
+	@ApiOperation(value = "Add items to (positive delta) or remove items from (negative delta) the inventory of a "
+			+ "given product, returns the resulting inventory")
+	@PutMapping("/v1/adjustInventory/{pid}/{delta}")
+	public int adjustInventory(@PathVariable @NotBlank @NotNull String pid, @PathVariable int delta) {
+		return productService.adjustInventory(pid, delta);
+	}
 
-	@ApiOperation(value = "Get Product details by productId")
-	@GetMapping("/v1/product/{pid}")
-	public ProductDto getProductById(@PathVariable @NotBlank @NotNull String pid) {
 
-		return productService.getProductById(pid);
+	@ApiOperation(value = "Get Product details by productId. Answers 304 when If-None-Match holds the current ETag.")
+	@GetMapping("/v1/product/{pid}")
+	public ResponseEntity<ProductDto> getProductById(@PathVariable @NotBlank @NotNull String pid,
+			WebRequest request) {
+
+		String revision = productService.getProductRevision(pid);
+		if (request.checkNotModified(revision)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(revision).cacheControl(productCacheControl)
+					.build();
+		}
+		ProductDto product = productService.getProductById(pid);
+		return ResponseEntity.ok().eTag(product.getRevision()).cacheControl(productCacheControl).body(product);
 	}
 
-	@ApiOperation(value = "Get All Products")
+	@ApiOperation(value = "Get All Products, one page at a time. The token for the next page is returned in the "
+			+ NEXT_CURSOR_HEADER + " header.")
 	@GetMapping("/v1/products")
-	public List<ProductDto> getAllProducts() {
+	public ResponseEntity<List<ProductDto>> getAllProducts(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) @Positive Integer limit, WebRequest request) {
+
+		// taken before reading, so a write during the read leads to a new ETag
+		String revision = productService.getCatalogRevision();
+		if (request.checkNotModified(revision)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(revision).cacheControl(catalogCacheControl)
+					.build();
+		}
+		ProductPageDto page = productService.getAllProducts(cursor, limit);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(revision).cacheControl(catalogCacheControl);
+		if (page.getNextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(page.getProducts());
+	}
+
+	@ApiOperation(value = "Search Products by manufacturer, name and price range")
+	@GetMapping("/v1/products/search")
+	public ProductSearchResultDto searchProducts(ProductSearchCriteria criteria) {
 
-		return productService.getAllProducts();
+		return productService.searchProducts(criteria);
+	}
+
+	@ApiOperation(value = "Retrieve several Products by id at once")
+	@GetMapping("/v1/products/batch")
+	public ProductBatchDto getProductsByIds(@RequestParam("productIds") List<String> productIds) {
+
+		return productService.getProductsByIds(productIds);
+	}
+
+	@ApiOperation(value = "Search Products by free text over name and manufacturer, best match first")
+	@GetMapping("/v1/products/search/text")
+	public List<ProductDto> searchProductsByText(@RequestParam("q") String query,
+			@RequestParam(required = false) @Positive Integer limit) {
+
+		return productService.searchProductsByText(query, limit);
+	}
+
+	@ApiOperation(value = "Export all Products as newline delimited JSON")
+	@GetMapping(value = "/v1/products/export", produces = NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportAllProducts() {
+
+		ObjectWriter writer = objectMapper.writerFor(ProductDto.class)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		StreamingResponseBody body = outputStream -> {
+			JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+					.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			try {
+				productService.exportAllProducts(productDto -> {
+					try {
+						writer.writeValue(generator, productDto);
+						generator.writeRaw('\n');
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			generator.flush();
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).cacheControl(CacheControl.noStore())
+				.body(body);
 	}
 
 	@ApiOperation(value = "Get total inventory of Product by Product Id")
 	@GetMapping("/v1/inventory/{pid}")
-	public int getNumberOfProductsById(@PathVariable String pid) {
+	public ResponseEntity<Integer> getNumberOfProductsById(@PathVariable String pid) {
+
+		return ResponseEntity.ok().cacheControl(CacheControl.noStore())
+				.body(productService.getNumberOfProductsById(pid));
+	}
 
-		return productService.getNumberOfProductsById(pid);
+	@ApiOperation(value = "Get hit, miss and eviction counters of the product cache")
+	@GetMapping("/v1/productCache/stats")
+	public ResponseEntity<CacheStatsDto> getProductCacheStats() {
+
+		return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(productService.getProductCacheStats());
 	}
 
 	@ApiOperation(value = "Update a product")
@@ -83,11 +217,17 @@ public class ElectronicsStoreController {
 		productService.updateProduct(pid, productDto);
 	}
 	
-	@ApiOperation(value = "Delete a product")
+	@ApiOperation(value = "Delete a product. Answers 404 when the product does not exist.")
 	@DeleteMapping("/v1/product/{pid}")
-	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public void removeProduct(@PathVariable @NotBlank @NotNull String pid) {
-		productService.removeProduct(pid);
+	public ResponseEntity<Void> removeProduct(@PathVariable @NotBlank @NotNull String pid) {
+		return productService.removeProduct(pid) ? ResponseEntity.noContent().build()
+				: ResponseEntity.notFound().build();
+	}
+
+	@ApiOperation(value = "Delete many products at once, unknown product ids are skipped")
+	@PostMapping("/v1/removeProducts")
+	public BulkDeleteResultDto removeProducts(@RequestBody List<String> productIds) {
+		return productService.removeProducts(productIds);
 	}
 
 }
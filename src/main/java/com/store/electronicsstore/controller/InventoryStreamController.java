@@ -0,0 +1,37 @@
+package com.store.electronicsstore.controller;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.store.electronicsstore.service.feed.InventoryStream;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * Live inventory for storefronts: one long-lived stream per client instead of polling each product's inventory.
+ */
+@RestController
+@Api(value = "Inventory stream")
+public class InventoryStreamController {
+
+	private final InventoryStream inventoryStream;
+
+	@Autowired
+	public InventoryStreamController(InventoryStream inventoryStream) {
+		this.inventoryStream = inventoryStream;
+	}
+
+	@ApiOperation(value = "Stream the inventory of the given products as server-sent events: their current inventory "
+			+ "first, then every change. Reconnect when the stream ends.")
+	@GetMapping("/v1/stream/inventory")
+	public SseEmitter streamInventory(@RequestParam Set<String> productIds, NativeWebRequest request) {
+		return inventoryStream.subscribe(productIds, request);
+	}
+}
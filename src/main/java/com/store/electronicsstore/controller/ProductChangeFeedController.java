@@ -0,0 +1,44 @@
+package com.store.electronicsstore.controller;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * Incremental sync of the catalog: consumers fetch the product changes following the last position they processed,
+ * instead of re-reading the whole catalog. Served in both the synchronous and the asynchronous mode, a request
+ * waiting for changes never holds a request thread.
+ */
+@RestController
+@Api(value = "Product change feed")
+public class ProductChangeFeedController {
+
+	private final ProductChangeFeed productChangeFeed;
+
+	@Autowired
+	public ProductChangeFeedController(ProductChangeFeed productChangeFeed) {
+		this.productChangeFeed = productChangeFeed;
+	}
+
+	@ApiOperation(value = "Get the product changes following position 'after', oldest first. Waits up to 'wait' "
+			+ "seconds for changes when there are none yet. Continue with the returned nextOffset.")
+	@GetMapping("/v1/products/changes")
+	public CompletableFuture<ResponseEntity<ProductChangeBatchDto>> getChanges(
+			@RequestParam(defaultValue = "0") long after, @RequestParam(required = false) Integer limit,
+			@RequestParam(defaultValue = "0") int wait) {
+		return productChangeFeed.poll(after, limit, Duration.ofSeconds(wait))
+				.thenApply(batch -> ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(batch));
+	}
+}
@@ -0,0 +1,37 @@
+package com.store.electronicsstore.controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of Java 21 from code built for Java 8, through reflection.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())}
+	 *
+	 * @param prefix name of the threads, followed by a counter.
+	 * @return executor starting a new virtual thread per task.
+	 * @throws IllegalStateException on a runtime without virtual threads.
+	 */
+	static ExecutorService newThreadPerTaskExecutor(String prefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+			ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, threadFactory);
+		} catch (NoSuchMethodException | ClassNotFoundException e) {
+			throw new IllegalStateException(
+					"Virtual threads need Java 21 or later, running on Java " + System.getProperty("java.version"), e);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual threads are not available", e);
+		}
+	}
+}
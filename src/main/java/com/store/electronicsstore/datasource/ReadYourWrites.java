@@ -0,0 +1,101 @@
+package com.store.electronicsstore.datasource;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.store.electronicsstore.config.StoreProperties;
+
+/**
+ * Remembers the products changed through this node for {@code store.datasource.read-your-writes-window}, so reads of
+ * them go to the primary instead of a replica that may not have the change yet. This keeps a client from reading its
+ * own write back in its old state, and the caches of this node from being filled with it again.
+ * <p>
+ * Only effective with read replicas configured.
+ */
+@Component
+public class ReadYourWrites {
+
+	/**
+	 * Upper bound of the remembered products, beyond it the oldest are forgotten before their window ends.
+	 */
+	private static final long MAX_REMEMBERED = 100000;
+
+	private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+	private final boolean enabled;
+
+	private final Cache<String, Boolean> recentlyWritten;
+
+	@Autowired
+	public ReadYourWrites(StoreProperties storeProperties) {
+		StoreProperties.Datasource settings = storeProperties.getDatasource();
+		this.enabled = !settings.getReplicas().isEmpty();
+		this.recentlyWritten = Caffeine.newBuilder()
+				.maximumSize(MAX_REMEMBERED)
+				.expireAfterWrite(settings.getReadYourWritesWindow())
+				.build();
+	}
+
+	/**
+	 * Whether the current thread is reading products that must come from the primary.
+	 */
+	public static boolean isPrimaryRequired() {
+		return PRIMARY_REQUIRED.get() != null;
+	}
+
+	/**
+	 * Records that products are being changed. Within a transaction the window starts again once the transaction
+	 * completes, so a long transaction does not use up the window before its changes are visible.
+	 *
+	 * @param productIds
+	 */
+	public void written(Collection<String> productIds) {
+		if (!enabled) {
+			return;
+		}
+		productIds.forEach(productId -> recentlyWritten.put(productId, Boolean.TRUE));
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					productIds.forEach(productId -> recentlyWritten.put(productId, Boolean.TRUE));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Runs a read of products, on the primary when one of them was changed within the window.
+	 *
+	 * @param productIds products read.
+	 * @param reader
+	 * @return what the reader returned.
+	 */
+	public <T> T read(Collection<String> productIds, Supplier<T> reader) {
+		if (!enabled || isPrimaryRequired() || !anyRecentlyWritten(productIds)) {
+			return reader.get();
+		}
+		PRIMARY_REQUIRED.set(Boolean.TRUE);
+		try {
+			return reader.get();
+		} finally {
+			PRIMARY_REQUIRED.remove();
+		}
+	}
+
+	private boolean anyRecentlyWritten(Collection<String> productIds) {
+		for (String productId : productIds) {
+			if (recentlyWritten.getIfPresent(productId) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
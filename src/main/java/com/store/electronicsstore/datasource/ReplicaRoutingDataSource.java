@@ -0,0 +1,268 @@
+package com.store.electronicsstore.datasource;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.store.electronicsstore.config.StoreProperties.ReplicaSelection;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands out connections of read replicas to read-only transactions and connections of the primary to everything
+ * else, including reads that {@link ReadYourWrites} sends to the primary. A replica whose connection attempt or health
+ * probe fails is skipped until a probe succeeds again, and reads fall back to the primary when no replica is left. A
+ * replica whose pool has no connection to spare within its timeout is overloaded rather than down: the read moves on
+ * to the next replica, but the busy one keeps getting reads.
+ * <p>
+ * The transaction is only known to be read-only once it has begun, so this data source belongs behind a
+ * {@link LazyConnectionDataSourceProxy}, which fetches the connection at the first statement. Connections handed out
+ * per target are counted as {@code store.datasource.connections}, the health of each replica is published as
+ * {@code store.datasource.replica.up}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	public static final String PRIMARY = "primary";
+
+	private static final int PROBE_TIMEOUT_SECONDS = 1;
+
+	private final DataSource primary;
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	private final ReplicaSelection selection;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final Counter primaryConnections;
+
+	private ScheduledExecutorService healthChecker;
+
+	/**
+	 * @param primary
+	 * @param replicas      replica data sources by name.
+	 * @param selection
+	 * @param meterRegistry
+	 */
+	public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, ReplicaSelection selection,
+			MeterRegistry meterRegistry) {
+		this.primary = primary;
+		this.selection = selection;
+		this.primaryConnections = connectionCounter(PRIMARY, meterRegistry);
+		replicas.forEach((name, dataSource) -> {
+			Replica replica = new Replica(name, dataSource, connectionCounter(name, meterRegistry));
+			Gauge.builder("store.datasource.replica.up", replica, up -> up.available ? 1 : 0)
+					.description("Whether a read replica gets reads")
+					.tag("replica", name)
+					.register(meterRegistry);
+			this.replicas.add(replica);
+		});
+	}
+
+	/**
+	 * Probes every replica at a fixed interval from now on.
+	 *
+	 * @param interval
+	 */
+	public void startHealthChecks(Duration interval) {
+		healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		healthChecker.scheduleWithFixedDelay(this::checkHealth, interval.toMillis(), interval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				&& !ReadYourWrites.isPrimaryRequired()) {
+			List<Replica> tried = new ArrayList<>(replicas.size());
+			for (Replica replica = select(tried); replica != null; replica = select(tried)) {
+				tried.add(replica);
+				try {
+					Connection connection = replica.dataSource.getConnection();
+					replica.connections.increment();
+					return connection;
+				} catch (SQLException e) {
+					if (isPoolExhausted(e)) {
+						LOGGER.debug("Replica {} has no connection to spare: {}", replica.name, e.getMessage());
+					} else {
+						replica.unavailable(e);
+					}
+				}
+			}
+		}
+		primaryConnections.increment();
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		primaryConnections.increment();
+		return primary.getConnection(username, password);
+	}
+
+	/**
+	 * Probes every replica once, making it available or unavailable for reads accordingly.
+	 */
+	public void checkHealth() {
+		for (Replica replica : replicas) {
+			try (Connection connection = replica.dataSource.getConnection()) {
+				if (connection.isValid(PROBE_TIMEOUT_SECONDS)) {
+					replica.available();
+				} else {
+					replica.unavailable(new SQLException("Connection is not valid"));
+				}
+			} catch (SQLException e) {
+				if (!isPoolExhausted(e)) {
+					replica.unavailable(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return names of the replicas currently getting reads.
+	 */
+	public List<String> getAvailableReplicas() {
+		List<String> available = new ArrayList<>();
+		for (Replica replica : replicas) {
+			if (replica.available) {
+				available.add(replica.name);
+			}
+		}
+		return Collections.unmodifiableList(available);
+	}
+
+	/**
+	 * Stops the health checks and closes the pools of the primary and of every replica.
+	 */
+	@Override
+	public void close() {
+		if (healthChecker != null) {
+			healthChecker.shutdownNow();
+		}
+		for (Replica replica : replicas) {
+			closeQuietly(replica.dataSource);
+		}
+		closeQuietly(primary);
+	}
+
+	/**
+	 * @param tried replicas not to select again.
+	 * @return an available replica, null when there is none.
+	 */
+	private Replica select(Collection<Replica> tried) {
+		int count = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), Math.max(count, 1));
+		Replica selected = null;
+		for (int i = 0; i < count; i++) {
+			Replica replica = replicas.get((start + i) % count);
+			if (!replica.available || tried.contains(replica)) {
+				continue;
+			}
+			if (selection == ReplicaSelection.ROUND_ROBIN) {
+				return replica;
+			}
+			if (selected == null || replica.load() < selected.load()) {
+				selected = replica;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Tells a pool that had no idle connection in time from a database that cannot be reached. Hikari reports both
+	 * as a timeout, but only the latter with the failure of its last connection attempt as the cause.
+	 */
+	private static boolean isPoolExhausted(SQLException e) {
+		return e instanceof SQLTransientConnectionException && e.getCause() == null;
+	}
+
+	private static Counter connectionCounter(String target, MeterRegistry meterRegistry) {
+		return Counter.builder("store.datasource.connections")
+				.description("Connections handed out per database")
+				.tag("target", target)
+				.register(meterRegistry);
+	}
+
+	private static void closeQuietly(DataSource dataSource) {
+		if (dataSource instanceof Closeable) {
+			try {
+				((Closeable) dataSource).close();
+			} catch (Exception e) {
+				LOGGER.warn("Failed to close a connection pool: {}", e.getMessage());
+			}
+		}
+	}
+
+	private static final class Replica {
+
+		private final String name;
+
+		private final DataSource dataSource;
+
+		private final Counter connections;
+
+		private volatile boolean available = true;
+
+		private Replica(String name, DataSource dataSource, Counter connections) {
+			this.name = name;
+			this.dataSource = dataSource;
+			this.connections = connections;
+		}
+
+		/**
+		 * @return connections of the replica in use, 0 when its pool does not tell.
+		 */
+		private int load() {
+			if (dataSource instanceof HikariDataSource) {
+				HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+				return pool == null ? 0 : pool.getActiveConnections();
+			}
+			return 0;
+		}
+
+		private void available() {
+			if (!available) {
+				available = true;
+				LOGGER.info("Replica {} is available again.", name);
+			}
+		}
+
+		private void unavailable(Exception e) {
+			if (available) {
+				available = false;
+				LOGGER.warn("Replica {} is unavailable, its reads go elsewhere until it recovers: {}", name,
+						e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.store.electronicsstore.domain;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last inventory journal segment of a node whose adjustments are in the products table.
+ **/
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "inventory_journal_checkpoints")
+public class InventoryJournalCheckpoint {
+
+	/**
+	 * Name of the journal.
+	 */
+	@Id
+	private String journalName;
+
+	/**
+	 * Sequence number of the last applied segment.
+	 */
+	private long segment;
+
+}
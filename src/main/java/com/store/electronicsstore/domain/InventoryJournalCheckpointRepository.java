@@ -0,0 +1,7 @@
+package com.store.electronicsstore.domain;
+
+import org.springframework.data.repository.CrudRepository;
+
+public interface InventoryJournalCheckpointRepository extends CrudRepository<InventoryJournalCheckpoint, String> {
+
+}
@@ -1,15 +1,24 @@
 package com.store.electronicsstore.domain;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,26 +26,41 @@ import lombok.NoArgsConstructor;
 
 /**
  * Representation of Product Table.
+ * <p>
+ * Products and the mapping from product id to internal id are kept in the Hibernate second-level cache, so a
+ * product looked up by its product id again is served without a query.
  **/
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
+@NaturalIdCache(region = Product.NATURAL_ID_CACHE_REGION)
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "products", uniqueConstraints = @UniqueConstraint(columnNames= {"productId"}))
+@Table(name = "products", uniqueConstraints = @UniqueConstraint(columnNames= {"productId"}), indexes = {
+		@Index(name = "idx_products_manufacturer_price", columnList = "manufacturer, price"),
+		@Index(name = "idx_products_name", columnList = "name"),
+		@Index(name = "idx_products_price", columnList = "price") })
 public class Product {
+
+	public static final String CACHE_REGION = "products";
+
+	public static final String NATURAL_ID_CACHE_REGION = "productIds";
+
 	/**
 	 * Unique internal id.
 	 */
 	@Id
 	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "SEQ_PRODUCT")
-	@SequenceGenerator(name = "SEQ_PRODUCT", allocationSize = 1)
+	@SequenceGenerator(name = "SEQ_PRODUCT", allocationSize = 50)
 	private Long id;
 
 
 	/**
-	 * A unique product model number.
+	 * A unique product model number, cannot be changed once stored.
 	 */
+	@NaturalId
 	private String productId;
 
 	/**
@@ -63,4 +87,11 @@ public class Product {
 	@Min(value = 0, message = "Inventory should be positive value.")
 	private int inventory;
 
+	/**
+	 * Incremented on every change of the row, guards against lost updates.
+	 */
+	@Version
+	@Column(columnDefinition = "bigint default 0 not null")
+	private long version;
+
 }
@@ -0,0 +1,66 @@
+package com.store.electronicsstore.domain;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of a product, written to this outbox table in the transaction of the change itself. Fields of the product
+ * that the change did not touch, or that are gone with it, are null.
+ **/
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "product_change_events", indexes = @Index(name = "idx_product_change_events_created_at",
+		columnList = "createdAt"))
+public class ProductChangeEvent {
+
+	public enum Type {
+		CREATED, UPDATED, INVENTORY_CHANGED, REMOVED
+	}
+
+	/**
+	 * Position of the change in the feed, assigned by the database in insert order. Ids of rolled back changes
+	 * leave gaps.
+	 */
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long sequence;
+
+	@Column(nullable = false)
+	private String productId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private Type type;
+
+	private String name;
+
+	private String manufacturer;
+
+	private Float price;
+
+	private Integer inventory;
+
+	/**
+	 * When the change was written, shortly before its transaction committed.
+	 */
+	@Column(nullable = false)
+	private Instant createdAt;
+
+}
@@ -0,0 +1,37 @@
+package com.store.electronicsstore.domain;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductChangeEventRepository
+		extends CrudRepository<ProductChangeEvent, Long>, ProductChangeEventRepositoryCustom {
+
+	/**
+	 * Reads the changes following a position of the feed, in feed order.
+	 */
+	@Query("select e from ProductChangeEvent e where e.sequence > :after order by e.sequence")
+	List<ProductChangeEvent> findAfter(@Param("after") long after, Pageable pageable);
+
+	/**
+	 * Finds the position of the last change written before the given time.
+	 *
+	 * @return the position, 0 when there is none.
+	 */
+	@Query("select coalesce(max(e.sequence), 0) from ProductChangeEvent e where e.createdAt < :before")
+	long findLastSequenceBefore(@Param("before") Instant before);
+
+	/**
+	 * Removes the changes written before the given time.
+	 *
+	 * @return number of removed changes.
+	 */
+	@Modifying
+	@Query("delete from ProductChangeEvent e where e.createdAt < :before")
+	int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,15 @@
+package com.store.electronicsstore.domain;
+
+import java.util.List;
+
+/**
+ * Writes of {@link ProductChangeEventRepository} that are not derived by Spring Data.
+ */
+public interface ProductChangeEventRepositoryCustom {
+
+	/**
+	 * Appends changes with one multi-row insert per chunk. The database assigns the sequences in list order, as it
+	 * would for single inserts, but they are not read back: the given changes stay without a sequence.
+	 */
+	void insertAll(List<ProductChangeEvent> events);
+}
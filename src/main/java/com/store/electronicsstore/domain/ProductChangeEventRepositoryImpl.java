@@ -0,0 +1,56 @@
+package com.store.electronicsstore.domain;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.InstantType;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Transactional;
+
+class ProductChangeEventRepositoryImpl implements ProductChangeEventRepositoryCustom {
+
+	/**
+	 * Upper bound of the rows written by a single insert, seven parameters each.
+	 */
+	private static final int MAX_ROWS_PER_INSERT = 500;
+
+	/**
+	 * Query space of the inserts, shared with no cached entity, so Hibernate keeps the second-level cache.
+	 */
+	private static final String PRODUCT_CHANGE_EVENTS = "product_change_events";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional
+	public void insertAll(List<ProductChangeEvent> events) {
+		for (int from = 0; from < events.size(); from += MAX_ROWS_PER_INSERT) {
+			insert(events.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, events.size())));
+		}
+	}
+
+	private void insert(List<ProductChangeEvent> events) {
+		StringBuilder sql = new StringBuilder("insert into product_change_events "
+				+ "(created_at, product_id, type, name, manufacturer, price, inventory) values ");
+		for (int row = 0; row < events.size(); row++) {
+			sql.append(row == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+		}
+		NativeQuery<?> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class);
+		query.addSynchronizedQuerySpace(PRODUCT_CHANGE_EVENTS);
+		int position = 1;
+		for (ProductChangeEvent event : events) {
+			query.setParameter(position++, event.getCreatedAt(), InstantType.INSTANCE);
+			query.setParameter(position++, event.getProductId(), StandardBasicTypes.STRING);
+			query.setParameter(position++, event.getType().name(), StandardBasicTypes.STRING);
+			query.setParameter(position++, event.getName(), StandardBasicTypes.STRING);
+			query.setParameter(position++, event.getManufacturer(), StandardBasicTypes.STRING);
+			query.setParameter(position++, event.getPrice(), StandardBasicTypes.FLOAT);
+			query.setParameter(position++, event.getInventory(), StandardBasicTypes.INTEGER);
+		}
+		query.executeUpdate();
+	}
+}
@@ -1,12 +1,79 @@
 package com.store.electronicsstore.domain;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductRepository extends PagingAndSortingRepository<Product, Long>, ProductRepositoryCustom {
+
+	/**
+	 * Rows fetched per round trip while streaming the catalog.
+	 */
+	String STREAM_FETCH_SIZE = "500";
+
+	/**
+	 * Reads several products with a single IN query.
+	 */
+	List<Product> findByProductIdIn(Collection<String> productIds);
+
+	/**
+	 * Returns which of the given product ids are already stored.
+	 */
+	@Query("select p.productId from Product p where p.productId in :productIds")
+	Set<String> findExistingProductIds(@Param("productIds") Collection<String> productIds);
+
+	/**
+	 * Reads internal id and version of a product without loading it.
+	 *
+	 * @return a single pair of id and version, none when the product does not exist.
+	 */
+	@Query("select p.id, p.version from Product p where p.productId = :productId")
+	List<Object[]> findIdAndVersion(@Param("productId") String productId);
+
+	@Query("select p.inventory from Product p where p.productId = :productId")
+	Optional<Integer> findInventoryByProductId(@Param("productId") String productId);
+
+	/**
+	 * Reads the inventory of several products at once.
+	 *
+	 * @return pairs of product id and inventory, for the products that exist.
+	 */
+	@Query("select p.productId, p.inventory from Product p where p.productId in :productIds")
+	List<Object[]> findInventories(@Param("productIds") Collection<String> productIds);
 
-import org.springframework.data.repository.CrudRepository;
+	/**
+	 * Keyset page of the catalog: products with an internal id above the given one, in the order of the pageable.
+	 */
+	Slice<Product> findByIdGreaterThan(Long id, Pageable pageable);
 
-public interface ProductRepository extends CrudRepository<Product, Long> {
+	/**
+	 * Forward-only cursor over the whole catalog, ordered by internal id. Has to be consumed and closed inside a
+	 * transaction.
+	 */
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select p from Product p order by p.id")
+	Stream<Product> streamAll();
 
-	Optional<Product> findByProductId(String productId);
-	
-	Product deleteByProductId(String productId);
+	/**
+	 * Forward-only cursor over product id, name and manufacturer of the whole catalog, for the full-text index.
+	 * Has to be consumed and closed inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+	@Query("select p.productId, p.name, p.manufacturer from Product p order by p.id")
+	Stream<Object[]> streamSearchableFields();
 }
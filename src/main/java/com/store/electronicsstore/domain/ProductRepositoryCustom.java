@@ -0,0 +1,63 @@
+package com.store.electronicsstore.domain;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Queries of {@link ProductRepository} that are not derived by Spring Data.
+ */
+public interface ProductRepositoryCustom {
+
+	/**
+	 * Returns one page of the products matching a specification. Unlike a {@code Page}, no count query is run:
+	 * one extra row is fetched to tell whether a following page exists.
+	 */
+	Slice<Product> findAll(Specification<Product> specification, Pageable pageable);
+
+	/**
+	 * Looks a product up by its product id, the natural id of {@link Product}. Served from the second-level cache
+	 * when the product has been read or written before, otherwise resolved with one query.
+	 */
+	Optional<Product> findByProductId(String productId);
+
+	/**
+	 * Overwrites the inventory of a product in a single statement.
+	 *
+	 * @return number of updated rows, 0 when the product does not exist.
+	 */
+	int updateInventory(String productId, int inventory);
+
+	/**
+	 * Adds a (possibly negative) delta to the inventory of a product in a single statement, unless the inventory
+	 * would drop below zero.
+	 *
+	 * @return number of updated rows, 0 when the product does not exist or has not enough inventory.
+	 */
+	int adjustInventory(String productId, int delta);
+
+	/**
+	 * Adds a (possibly negative) delta to the inventory of a product in a single statement, leaving zero items
+	 * where the inventory would drop below zero.
+	 *
+	 * @return number of updated rows, 0 when the product does not exist.
+	 */
+	int adjustInventoryAtLeastZero(String productId, int delta);
+
+	/**
+	 * Removes a product in a single statement, without loading it first.
+	 *
+	 * @return number of removed rows, 0 when the product does not exist.
+	 */
+	int deleteByProductId(String productId);
+
+	/**
+	 * Removes several products in a single statement, without loading them first.
+	 *
+	 * @return number of removed rows.
+	 */
+	int deleteByProductIdIn(Collection<String> productIds);
+}
@@ -0,0 +1,182 @@
+package com.store.electronicsstore.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+	/**
+	 * Query space of the single-statement product writes. Hibernate empties the second-level cache regions of every
+	 * entity sharing a query space with a bulk statement, this one is shared with none: the written products are
+	 * evicted one by one instead, as far as their ids are cached.
+	 */
+	private static final String PRODUCT_WRITES = "product_writes";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Slice<Product> findAll(Specification<Product> specification, Pageable pageable) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Product> query = builder.createQuery(Product.class);
+		Root<Product> root = query.from(Product.class);
+		Predicate predicate = specification.toPredicate(root, query, builder);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+		query.select(root).orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+		List<Product> products = entityManager.createQuery(query)
+				.setFirstResult(Math.toIntExact(pageable.getOffset()))
+				.setMaxResults(pageable.getPageSize() + 1)
+				.getResultList();
+		boolean hasNext = products.size() > pageable.getPageSize();
+		return new SliceImpl<>(hasNext ? products.subList(0, pageable.getPageSize()) : products, pageable, hasNext);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Product> findByProductId(String productId) {
+		return entityManager.unwrap(Session.class).bySimpleNaturalId(Product.class).loadOptional(productId);
+	}
+
+	@Override
+	@Transactional
+	public int updateInventory(String productId, int inventory) {
+		return write(Collections.singleton(productId), false,
+				"update products set inventory = :inventory, version = version + 1 where product_id in (:productIds)",
+				Collections.singletonMap("inventory", inventory));
+	}
+
+	@Override
+	@Transactional
+	public int adjustInventory(String productId, int delta) {
+		return write(Collections.singleton(productId), false,
+				"update products set inventory = inventory + :delta, version = version + 1 "
+						+ "where product_id in (:productIds) and inventory + :delta >= 0",
+				Collections.singletonMap("delta", delta));
+	}
+
+	@Override
+	@Transactional
+	public int adjustInventoryAtLeastZero(String productId, int delta) {
+		return write(Collections.singleton(productId), false,
+				"update products set inventory = greatest(inventory + :delta, 0), version = version + 1 "
+						+ "where product_id in (:productIds)",
+				Collections.singletonMap("delta", delta));
+	}
+
+	@Override
+	@Transactional
+	public int deleteByProductId(String productId) {
+		return deleteByProductIdIn(Collections.singleton(productId));
+	}
+
+	@Override
+	@Transactional
+	public int deleteByProductIdIn(Collection<String> productIds) {
+		return write(productIds, true, "delete from products where product_id in (:productIds)",
+				Collections.emptyMap());
+	}
+
+	/**
+	 * Runs a statement writing the given products and evicts them from the second-level cache, right away and again
+	 * once the transaction completes, so a copy cached by a concurrent read in between does not outlive it.
+	 *
+	 * @param removed whether the products are removed, which evicts the mapping of their product ids as well.
+	 */
+	private int write(Collection<String> productIds, boolean removed, String sql,
+			Map<String, Object> parameters) {
+		EventSource session = entityManager.unwrap(EventSource.class);
+		CachedProducts cached = findCached(session, productIds, removed);
+		cached.evict();
+		NativeQuery<?> query = session.createNativeQuery(sql);
+		query.addSynchronizedQuerySpace(PRODUCT_WRITES);
+		query.setParameterList("productIds", productIds);
+		parameters.forEach(query::setParameter);
+		int written = query.executeUpdate();
+		session.getActionQueue()
+				.registerProcess((AfterTransactionCompletionProcess) (success, completed) -> cached.evict());
+		return written;
+	}
+
+	/**
+	 * Finds the second-level cache keys of products, without a statement. A product id missing from the product id
+	 * cache may still belong to a cached entity, loaded by id or by a query, so it has all products evicted.
+	 */
+	private CachedProducts findCached(EventSource session, Collection<String> productIds, boolean removed) {
+		EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Product.class);
+		CachedProducts cached = new CachedProducts(persister);
+		if (!persister.canWriteToCache() || !persister.hasNaturalIdCache()) {
+			return cached;
+		}
+		EntityDataAccess entities = persister.getCacheAccessStrategy();
+		NaturalIdDataAccess naturalIds = persister.getNaturalIdCacheAccessStrategy();
+		for (String productId : productIds) {
+			Object naturalIdKey = naturalIds.generateCacheKey(new Object[] { productId }, persister, session);
+			Object id = naturalIds.get(session, naturalIdKey);
+			if (id == null) {
+				cached.allEntities = true;
+			} else {
+				cached.entityKeys.add(entities.generateCacheKey(id, persister, session.getFactory(),
+						session.getTenantIdentifier()));
+			}
+			if (removed) {
+				cached.naturalIdKeys.add(naturalIdKey);
+			}
+		}
+		return cached;
+	}
+
+	/**
+	 * Second-level cache entries of written products.
+	 */
+	private static final class CachedProducts {
+
+		private final EntityPersister persister;
+
+		private final List<Object> entityKeys = new ArrayList<>();
+
+		private final List<Object> naturalIdKeys = new ArrayList<>();
+
+		private boolean allEntities;
+
+		private CachedProducts(EntityPersister persister) {
+			this.persister = persister;
+		}
+
+		private void evict() {
+			if (allEntities) {
+				persister.getCacheAccessStrategy().evictAll();
+			} else {
+				entityKeys.forEach(persister.getCacheAccessStrategy()::evict);
+			}
+			naturalIdKeys.forEach(persister.getNaturalIdCacheAccessStrategy()::evict);
+		}
+	}
+}
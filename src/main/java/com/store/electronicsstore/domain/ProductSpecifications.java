@@ -0,0 +1,42 @@
+package com.store.electronicsstore.domain;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Search filters over {@link Product}, each backed by an index of the products table.
+ */
+public final class ProductSpecifications {
+
+	private ProductSpecifications() {
+	}
+
+	public static Specification<Product> manufacturerIs(String manufacturer) {
+		return (root, query, builder) -> builder.equal(root.get("manufacturer"), manufacturer);
+	}
+
+	/**
+	 * Name prefix match, can use the name index.
+	 */
+	public static Specification<Product> nameStartsWith(String prefix) {
+		return (root, query, builder) -> builder.like(root.get("name"), escape(prefix) + "%", '\\');
+	}
+
+	/**
+	 * Name substring match, has to scan the rows left by the other filters.
+	 */
+	public static Specification<Product> nameContains(String part) {
+		return (root, query, builder) -> builder.like(root.get("name"), "%" + escape(part) + "%", '\\');
+	}
+
+	public static Specification<Product> priceAtLeast(float minPrice) {
+		return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("price"), minPrice);
+	}
+
+	public static Specification<Product> priceAtMost(float maxPrice) {
+		return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("price"), maxPrice);
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
@@ -0,0 +1,148 @@
+package com.store.electronicsstore.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.service.exceptions.ExceptionResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sheds load once {@code store.http.max-concurrent-requests} requests to /v1 are in flight: further requests are
+ * answered with 429 and a {@code Retry-After} header right away instead of queuing in front of the connection pool,
+ * and counted as {@code store.requests.rejected}. An asynchronous request holds its permit until it completes.
+ * Requests that mostly wait for changes, holding neither a thread nor a connection meanwhile, are not limited.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ConcurrencyLimitFilter implements Filter {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final List<String> WAITING_PATHS = Arrays.asList("/v1/products/changes", "/v1/stream/inventory");
+
+    private final Semaphore permits;
+
+    private final byte[] rejectedBody;
+
+    private final Counter rejected;
+
+    @Autowired
+    public ConcurrencyLimitFilter(StoreProperties storeProperties, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) throws IOException {
+        int limit = storeProperties.getHttp().getMaxConcurrentRequests();
+        this.permits = limit > 0 ? new Semaphore(limit) : null;
+        this.rejectedBody = objectMapper.writeValueAsBytes(new ExceptionResponse("The store is busy, please retry."));
+        this.rejected = Counter.builder("store.requests.rejected")
+                .description("Requests answered with 429 because too many requests were in flight")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException
+    {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        if (permits == null || !isLimited(request)) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            reject((HttpServletResponse) servletResponse);
+            return;
+        }
+        Permit permit = new Permit();
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private static boolean isLimited(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith("/v1/") && !WAITING_PATHS.contains(path);
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setContentLength(rejectedBody.length);
+        response.getOutputStream().write(rejectedBody);
+    }
+
+    /**
+     * Released once, whichever of completion, error or timeout of an asynchronous request comes first.
+     */
+    private final class Permit implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // a new asynchronous cycle of the same request keeps the permit, register for its events as well
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.store.electronicsstore.filter;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random version 4 UUIDs from {@link ThreadLocalRandom}. Unlike {@link UUID#randomUUID()} this never
+ * touches the shared {@code SecureRandom}, so request threads do not contend; correlation ids only need to be
+ * unique, not unpredictable.
+ */
+public final class CorrelationIdGenerator {
+
+    private CorrelationIdGenerator() {
+    }
+
+    public static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = random.nextLong() & ~0xF000L | 0x4000L;
+        long leastSigBits = random.nextLong() & ~(0xC000000000000000L) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
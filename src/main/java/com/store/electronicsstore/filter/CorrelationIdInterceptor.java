@@ -1,7 +1,6 @@
 package com.store.electronicsstore.filter;
 
 import java.io.IOException;
-import java.util.UUID;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -9,13 +8,30 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+/**
+ * Puts the correlation id of a request into the MDC for the duration of the request and echoes it in the response.
+ * The id is taken from the {@code x-correlation-id} request header when an upstream service sent a usable one, and
+ * generated otherwise.
+ */
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class CorrelationIdInterceptor implements Filter {
 
+    public static final String CORRELATION_ID = "x-correlation-id";
+
+    /**
+     * Longest accepted upstream id, longer ones are replaced rather than copied into every log line.
+     */
+    private static final int MAX_LENGTH = 64;
+
     @Override
     public void destroy() {
 
@@ -29,8 +45,33 @@ public class CorrelationIdInterceptor implements Filter {
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException
     {
-        MDC.put("x-correlation-id", UUID.randomUUID().randomUUID().toString());
-        filterChain.doFilter(servletRequest, servletResponse);
+        String correlationId = ((HttpServletRequest) servletRequest).getHeader(CORRELATION_ID);
+        if (!isValid(correlationId)) {
+            correlationId = CorrelationIdGenerator.next();
+        }
+        MDC.put(CORRELATION_ID, correlationId);
+        ((HttpServletResponse) servletResponse).setHeader(CORRELATION_ID, correlationId);
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            MDC.remove(CORRELATION_ID);
+        }
     }
-}
 
+    /**
+     * Accepts ids of letters, digits, '-', '_' and '.' only, so a header cannot forge log lines.
+     */
+    private static boolean isValid(String correlationId) {
+        if (correlationId == null || correlationId.isEmpty() || correlationId.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < correlationId.length(); i++) {
+            char c = correlationId.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_'
+                    || c == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
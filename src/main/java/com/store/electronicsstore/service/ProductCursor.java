@@ -0,0 +1,52 @@
+package com.store.electronicsstore.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+
+/**
+ * Encodes the keyset position of a catalog page into an opaque continuation token.
+ */
+final class ProductCursor {
+
+	private static final String PREFIX = "v1:";
+
+	private ProductCursor() {
+	}
+
+	/**
+	 * Builds the token pointing right after the product with the given internal id.
+	 *
+	 * @param lastId
+	 * @return continuation token.
+	 */
+	static String encode(long lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Reads back the internal id a token points after, 0 for the first page.
+	 *
+	 * @param cursor
+	 * @return last internal id already returned to the client.
+	 */
+	static long decode(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return 0L;
+		}
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+			if (value.startsWith(PREFIX)) {
+				long lastId = Long.parseLong(value.substring(PREFIX.length()));
+				if (lastId >= 0) {
+					return lastId;
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// falls through to the bad request below, NumberFormatException included
+		}
+		throw new BadRequestException("Invalid cursor: " + cursor);
+	}
+}
@@ -1,36 +1,122 @@
 package com.store.electronicsstore.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 
-import org.modelmapper.ModelMapper;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.datasource.ReadYourWrites;
 import com.store.electronicsstore.domain.Product;
 import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.domain.ProductSpecifications;
+import com.store.electronicsstore.service.cache.CatalogVersion;
+import com.store.electronicsstore.service.cache.ProductCache;
+import com.store.electronicsstore.service.dto.BulkDeleteResultDto;
+import com.store.electronicsstore.service.dto.BulkProductItemResultDto;
+import com.store.electronicsstore.service.dto.BulkProductItemResultDto.Status;
+import com.store.electronicsstore.service.dto.BulkProductResultDto;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
+import com.store.electronicsstore.service.dto.CacheStatsDto;
 import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.dto.ProductPageDto;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria.NameMatch;
+import com.store.electronicsstore.service.dto.ProductSearchResultDto;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+import com.store.electronicsstore.service.exceptions.InsufficientInventoryException;
 import com.store.electronicsstore.service.exceptions.ProductAlreadyExistsException;
 import com.store.electronicsstore.service.exceptions.ProductNotFoundException;
 import com.store.electronicsstore.service.exceptions.ProductsNotPresentException;
+import com.store.electronicsstore.service.feed.ProductChangeOutbox;
+import com.store.electronicsstore.service.inventory.InventoryWriteBehind;
+import com.store.electronicsstore.service.mapper.ProductMapper;
+import com.store.electronicsstore.service.search.ProductTextIndex;
+import com.store.electronicsstore.service.snapshot.ProductSnapshot;
 
 @Service
 public class ProductService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProductService.class);
+
+	/**
+	 * Upper bound of the number of ids bound into a single IN clause.
+	 */
+	private static final int MAX_IDS_PER_QUERY = 1000;
+
+	/**
+	 * Indexed columns search results can be sorted by.
+	 */
+	private static final Set<String> SEARCH_SORT_PROPERTIES = new HashSet<>(
+			Arrays.asList("productId", "name", "manufacturer", "price"));
+
 	private final ProductRepository productRepository;
 
-	private final ModelMapper modelMapper;
+	private final ProductMapper productMapper;
+
+	private final StoreProperties storeProperties;
+
+	private final EntityManager entityManager;
+
+	private final Validator validator;
+
+	private final ProductCache productCache;
+
+	private final InventoryWriteBehind inventoryWriteBehind;
+
+	private final ProductTextIndex productTextIndex;
+
+	private final CatalogVersion catalogVersion;
+
+	private final ReadYourWrites readYourWrites;
+
+	private final ProductChangeOutbox productChangeOutbox;
+
+	private final ProductSnapshot productSnapshot;
 
 	@Autowired
-	public ProductService(ProductRepository productRepository, ModelMapper modelMapper) {
+	public ProductService(ProductRepository productRepository, ProductMapper productMapper,
+			StoreProperties storeProperties, EntityManager entityManager, Validator validator,
+			ProductCache productCache, InventoryWriteBehind inventoryWriteBehind, ProductTextIndex productTextIndex,
+			CatalogVersion catalogVersion, ReadYourWrites readYourWrites, ProductChangeOutbox productChangeOutbox,
+			ProductSnapshot productSnapshot) {
 		this.productRepository = productRepository;
-		this.modelMapper = modelMapper;
+		this.productMapper = productMapper;
+		this.storeProperties = storeProperties;
+		this.entityManager = entityManager;
+		this.validator = validator;
+		this.productCache = productCache;
+		this.inventoryWriteBehind = inventoryWriteBehind;
+		this.productTextIndex = productTextIndex;
+		this.catalogVersion = catalogVersion;
+		this.readYourWrites = readYourWrites;
+		this.productChangeOutbox = productChangeOutbox;
+		this.productSnapshot = productSnapshot;
 	}
 
 	/**
@@ -47,30 +133,126 @@ public class ProductService {
 		});
 		if (!productById.isPresent()) {
 			LOGGER.info("No Duplicates found.");
-			Product product = modelMapper.map(productDto, Product.class);
+			Product product = productMapper.toEntity(productDto);
 
 			// Save Product
 			productRepository.save(product);
+			productCache.invalidate(productDto.getProductId());
+			catalogVersion.increment();
+			productChangeOutbox.created(product);
 		}
 	}
 
 	/**
-	 * Method to update inventory for a given product.
+	 * Method to add many products at once. Duplicates are detected with one lookup per chunk of ids instead of one
+	 * per product, and inserts are flushed in JDBC batches of the configured size. Invalid and duplicate products
+	 * are reported instead of failing the whole request.
+	 * 
+	 * @param productDtos
+	 * @return result per submitted product.
+	 */
+	@Transactional
+	public BulkProductResultDto addNewProducts(List<ProductDto> productDtos) {
+		requireElements(productDtos, "products");
+		StoreProperties.Products settings = storeProperties.getProducts();
+		if (productDtos.size() > settings.getMaxBulkSize()) {
+			throw new BadRequestException("At most " + settings.getMaxBulkSize() + " products can be added at once");
+		}
+
+		Set<String> existingProductIds = findExistingProductIds(productDtos);
+		Set<String> acceptedProductIds = new HashSet<>();
+		List<BulkProductItemResultDto> items = new ArrayList<>(productDtos.size());
+		int batchSize = settings.getBulkBatchSize();
+		int created = 0;
+		for (ProductDto productDto : productDtos) {
+			String pid = productDto.getProductId();
+			Set<ConstraintViolation<ProductDto>> violations = validator.validate(productDto);
+			if (!violations.isEmpty()) {
+				items.add(new BulkProductItemResultDto(pid, Status.INVALID, violations.stream()
+						.map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+						.sorted().collect(Collectors.joining(", "))));
+			} else if (existingProductIds.contains(pid) || !acceptedProductIds.add(pid)) {
+				items.add(new BulkProductItemResultDto(pid, Status.DUPLICATE,
+						"Product with model number " + pid + " already exists"));
+			} else {
+				Product product = productMapper.toEntity(productDto);
+				productRepository.save(product);
+				productCache.invalidate(pid);
+				productChangeOutbox.created(product);
+				items.add(new BulkProductItemResultDto(pid, Status.CREATED, null));
+				if (++created % batchSize == 0) {
+					// send the pending batch and keep the persistence context from growing with the request
+					entityManager.flush();
+					entityManager.clear();
+				}
+			}
+		}
+		LOGGER.info("Bulk add stored {} of {} products.", created, productDtos.size());
+		if (created > 0) {
+			catalogVersion.increment();
+		}
+
+		return new BulkProductResultDto(created, productDtos.size() - created, items);
+	}
+
+	private Set<String> findExistingProductIds(List<ProductDto> productDtos) {
+		List<String> productIds = productDtos.stream().map(ProductDto::getProductId).filter(Objects::nonNull)
+				.distinct().collect(Collectors.toList());
+		Set<String> existingProductIds = new HashSet<>();
+		for (int from = 0; from < productIds.size(); from += MAX_IDS_PER_QUERY) {
+			existingProductIds.addAll(productRepository.findExistingProductIds(
+					productIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, productIds.size()))));
+		}
+		return existingProductIds;
+	}
+
+	/**
+	 * Method to overwrite the inventory of a given product.
 	 *
 	 * @param pid
-	 * @param quantityToAdd
+	 * @param updatedInventory new inventory, cannot be negative.
 	 */
-
+	@Transactional
 	public void updateQuantity(String pid, int updatedInventory) {
+		if (updatedInventory < 0) {
+			throw new BadRequestException("inventory cannot be negative");
+		}
 
-		LOGGER.info("Retrieving existing product:" + pid);
+		LOGGER.info("Updating inventory of product {} to: {}", pid, updatedInventory);
+		if (productRepository.updateInventory(pid, updatedInventory) == 0) {
+			throw new ProductNotFoundException("Product with id:" + pid + " not found.");
+		}
+		productCache.invalidate(pid);
+		catalogVersion.increment();
+		productChangeOutbox.inventoryChanged(pid, updatedInventory);
+	}
 
-		Product product = productRepository.findByProductId(pid)
-				.orElseThrow(() -> new ProductNotFoundException("Product with id:" + pid + " not found."));
+	/**
+	 * Method to add or remove items from the inventory of a given product. The change is applied by a single
+	 * conditional update, so concurrent adjustments never overwrite each other and the inventory never drops
+	 * below zero. In write-behind mode the adjustment is accepted in memory and written with the next flush.
+	 *
+	 * @param pid
+	 * @param delta number of items to add, negative to remove items.
+	 * @return the inventory after the adjustment.
+	 */
+	@Transactional
+	public int adjustInventory(String pid, int delta) {
+		if (inventoryWriteBehind.isEnabled()) {
+			return inventoryWriteBehind.adjust(pid, delta);
+		}
+		if (productRepository.adjustInventory(pid, delta) == 0) {
+			int inventory = productRepository.findInventoryByProductId(pid)
+					.orElseThrow(() -> new ProductNotFoundException("Product with id:" + pid + " not found."));
+			throw new InsufficientInventoryException(
+					"Product with id:" + pid + " has " + inventory + " items, cannot remove " + -delta + ".");
+		}
+		productCache.invalidate(pid);
+		catalogVersion.increment();
 
-		LOGGER.info("Updating inventory to: " + updatedInventory);
-		product.setInventory(updatedInventory);
-		productRepository.save(product);
+		int inventory = productRepository.findInventoryByProductId(pid).orElse(0);
+		productChangeOutbox.inventoryChanged(pid, inventory);
+		return inventory;
 	}
 
 	/**
@@ -80,27 +262,191 @@ public class ProductService {
 	 * @return
 	 */
 	public ProductDto getProductById(String pid) {
-		LOGGER.info("Retreiving product for : " + pid);
-		Product product = productRepository.findByProductId(pid)
+		LOGGER.info("Retreiving product for : {}", pid);
+		return productCache.get(pid, this::loadProduct)
 				.orElseThrow(() -> new ProductNotFoundException("Product with id:" + pid + " is not found."));
+	}
+
+	/**
+	 * Method to return a token that changes whenever the given product changes, without loading the product when
+	 * it is not cached.
+	 * 
+	 * @param pid
+	 * @return revision of the product.
+	 */
+	public String getProductRevision(String pid) {
+		ProductDto cached = productCache.getIfCached(pid);
+		if (cached != null) {
+			return cached.getRevision();
+		}
+		ProductDto snapshotted = productSnapshot.find(pid);
+		if (snapshotted != null) {
+			return snapshotted.getRevision();
+		}
+		List<Object[]> idAndVersion = readYourWrites.read(Collections.singleton(pid),
+				() -> productRepository.findIdAndVersion(pid));
+		if (idAndVersion.isEmpty()) {
+			throw new ProductNotFoundException("Product with id:" + pid + " is not found.");
+		}
+		return ProductDto.revision((Long) idAndVersion.get(0)[0], (Long) idAndVersion.get(0)[1]);
+	}
 
-		return modelMapper.map(product, ProductDto.class);
+	/**
+	 * Method to return a token that changes with every product write of this node.
+	 * 
+	 * @return revision of the catalog.
+	 */
+	public String getCatalogRevision() {
+		return catalogVersion.current();
 	}
 
 	/**
-	 * Method to retrieve all products.
+	 * Method to retrieve several products by id at once. Products not cached are read with one query per chunk of
+	 * ids, and unknown ids are reported instead of failing the request.
 	 * 
-	 * @return
+	 * @param pids
+	 * @return products found, in request order, and the ids not found.
+	 */
+	public ProductBatchDto getProductsByIds(List<String> pids) {
+		List<String> distinctPids = requireElements(pids, "productIds").stream().distinct()
+				.collect(Collectors.toList());
+		int maxBatchSize = storeProperties.getProducts().getMaxPageSize();
+		if (distinctPids.size() > maxBatchSize) {
+			throw new BadRequestException("At most " + maxBatchSize + " products can be retrieved at once");
+		}
+
+		Map<String, Optional<ProductDto>> found = productCache.getAll(distinctPids, this::loadProducts);
+		List<ProductDto> products = new ArrayList<>(distinctPids.size());
+		List<String> missing = new ArrayList<>();
+		for (String pid : distinctPids) {
+			Optional<ProductDto> product = found.getOrDefault(pid, Optional.empty());
+			if (product.isPresent()) {
+				products.add(product.get());
+			} else {
+				missing.add(pid);
+			}
+		}
+		return new ProductBatchDto(products, missing);
+	}
+
+	/**
+	 * Method to retrieve one page of products, ordered by internal id.
+	 * 
+	 * @param cursor continuation token of the previous page, null for the first page.
+	 * @param limit  maximum number of products, null for the configured default.
+	 * @return page of products.
 	 */
-	public List<ProductDto> getAllProducts() {
-		List<Product> products = (List<Product>) productRepository.findAll();
+	public ProductPageDto getAllProducts(String cursor, Integer limit) {
+		long lastId = ProductCursor.decode(cursor);
+		int pageSize = pageSize(limit);
 
-		if (products.isEmpty()) {
+		Slice<Product> slice = productRepository.findByIdGreaterThan(lastId,
+				PageRequest.of(0, pageSize, Sort.by(Sort.Direction.ASC, "id")));
+		List<Product> products = slice.getContent();
+
+		if (products.isEmpty() && lastId == 0L) {
 			LOGGER.info("No Products exist");
 			throw new ProductsNotPresentException("no products present in DB");
 		}
 
-		return mapProductListToProDtoList(products);
+		String nextCursor = slice.hasNext() ? ProductCursor.encode(products.get(products.size() - 1).getId()) : null;
+		return new ProductPageDto(mapProductListToProDtoList(products), nextCursor);
+	}
+
+	/**
+	 * Method to search products by manufacturer, name and price range. Results are sorted by one of the indexed
+	 * columns and returned one page at a time.
+	 * 
+	 * @param criteria
+	 * @return page of matching products.
+	 */
+	public ProductSearchResultDto searchProducts(ProductSearchCriteria criteria) {
+		if (!SEARCH_SORT_PROPERTIES.contains(criteria.getSortBy())) {
+			throw new BadRequestException("Products cannot be sorted by " + criteria.getSortBy());
+		}
+		if (criteria.getMinPrice() != null && criteria.getMaxPrice() != null
+				&& criteria.getMinPrice() > criteria.getMaxPrice()) {
+			throw new BadRequestException("minPrice cannot be above maxPrice");
+		}
+		if (criteria.getPage() < 0) {
+			throw new BadRequestException("page cannot be negative");
+		}
+
+		Specification<Product> specification = Specification.where(null);
+		if (StringUtils.isNotBlank(criteria.getManufacturer())) {
+			specification = specification.and(ProductSpecifications.manufacturerIs(criteria.getManufacturer()));
+		}
+		if (StringUtils.isNotBlank(criteria.getName())) {
+			specification = specification.and(criteria.getNameMatch() == NameMatch.CONTAINS
+					? ProductSpecifications.nameContains(criteria.getName())
+					: ProductSpecifications.nameStartsWith(criteria.getName()));
+		}
+		if (criteria.getMinPrice() != null) {
+			specification = specification.and(ProductSpecifications.priceAtLeast(criteria.getMinPrice()));
+		}
+		if (criteria.getMaxPrice() != null) {
+			specification = specification.and(ProductSpecifications.priceAtMost(criteria.getMaxPrice()));
+		}
+
+		int pageSize = pageSize(criteria.getSize());
+		if ((long) criteria.getPage() * pageSize > Integer.MAX_VALUE) {
+			throw new BadRequestException("page " + criteria.getPage() + " of size " + pageSize + " is out of range");
+		}
+		Sort sort = Sort.by(criteria.getDirection(), criteria.getSortBy()).and(Sort.by("id"));
+		Slice<Product> slice = productRepository.findAll(specification,
+				PageRequest.of(criteria.getPage(), pageSize, sort));
+
+		return new ProductSearchResultDto(mapProductListToProDtoList(slice.getContent()), criteria.getPage(),
+				pageSize, slice.hasNext());
+	}
+
+	/**
+	 * Method to search products by free text over their name and manufacturer, best match first.
+	 * 
+	 * @param query words to look for, e.g. "samsung 55 oled".
+	 * @param limit maximum number of products, null for the configured default.
+	 * @return matching products.
+	 */
+	public List<ProductDto> searchProductsByText(String query, Integer limit) {
+		if (!productTextIndex.isEnabled()) {
+			throw new BadRequestException("Full-text search is disabled");
+		}
+		return getProductsByIds(productTextIndex.search(query, pageSize(limit))).getProducts();
+	}
+
+	private int pageSize(Integer limit) {
+		StoreProperties.Products settings = storeProperties.getProducts();
+		return limit == null ? settings.getDefaultPageSize() : Math.max(1, Math.min(limit, settings.getMaxPageSize()));
+	}
+
+	/**
+	 * Rejects a missing list of a batch request and null elements in it, which a JSON body such as {@code [null]}
+	 * carries.
+	 */
+	private static <T> List<T> requireElements(List<T> elements, String name) {
+		if (elements == null) {
+			throw new BadRequestException(name + " cannot be null");
+		}
+		if (elements.stream().anyMatch(Objects::isNull)) {
+			throw new BadRequestException(name + " cannot contain null");
+		}
+		return elements;
+	}
+
+	/**
+	 * Method to hand every product of the catalog to a consumer, one at a time. Products are read through a
+	 * forward-only cursor and detached once consumed, so memory use does not grow with the catalog.
+	 * 
+	 * @param consumer
+	 */
+	@Transactional(readOnly = true)
+	public void exportAllProducts(Consumer<ProductDto> consumer) {
+		try (Stream<Product> products = productRepository.streamAll()) {
+			products.forEach(product -> {
+				consumer.accept(productMapper.toDto(product));
+				entityManager.detach(product);
+			});
+		}
 	}
 
 	/**
@@ -110,17 +456,30 @@ public class ProductService {
 	 * @return
 	 */
 	public int getNumberOfProductsById(String pid) {
-		Optional<Product> product = productRepository.findByProductId(pid);
+		OptionalInt pending = inventoryWriteBehind.available(pid);
+		if (pending.isPresent()) {
+			return pending.getAsInt();
+		}
+		Optional<ProductDto> product = productCache.get(pid, this::loadProduct);
 
 		return product.isPresent() ? product.get().getInventory() : 0;
 	}
 
+	/**
+	 * Method to return the counters of the product cache.
+	 * 
+	 * @return cache statistics.
+	 */
+	public CacheStatsDto getProductCacheStats() {
+		return productCache.stats();
+	}
+
 	@Transactional
 	public void updateProduct(String pid, ProductDto productDto) {
 
 		Product product = productRepository.findByProductId(pid)
 				.orElseThrow(() -> new ProductNotFoundException("Product with id: " + pid + " is not found."));
-		LOGGER.info("Product to be updated : " + product.getName());
+		LOGGER.info("Product to be updated : {}", product.getName());
 		if (productDto.getProductId() != null) {
 			if (!productDto.getProductId().equals(pid)) {
 				throw new ProductNotFoundException("Id cannot be updated.");
@@ -131,7 +490,54 @@ public class ProductService {
 		product.setManufacturer(productDto.getManufacturer());
 		product.setPrice(productDto.getPrice());
 		productRepository.save(product);
+		productCache.invalidate(pid);
+		catalogVersion.increment();
+		productChangeOutbox.updated(product);
+
+	}
+
+	/**
+	 * Cache loader reading a product from the catalog snapshot, or the database when the snapshot cannot tell.
+	 * 
+	 * @param pid
+	 * @return the product, empty when it does not exist.
+	 */
+	private Optional<ProductDto> loadProduct(String pid) {
+		ProductDto snapshotted = productSnapshot.find(pid);
+		if (snapshotted != null) {
+			return Optional.of(snapshotted);
+		}
+		return productRepository.findByProductId(pid).map(productMapper::toDto);
+	}
 
+	/**
+	 * Cache loader reading several products from the catalog snapshot, and the ones it cannot tell from the
+	 * database.
+	 * 
+	 * @param pids
+	 * @return lookup result per product id, empty for the ones that do not exist.
+	 */
+	private Map<String, Optional<ProductDto>> loadProducts(Set<String> pids) {
+		Map<String, Optional<ProductDto>> products = new HashMap<>();
+		List<String> remaining = new ArrayList<>();
+		for (String pid : pids) {
+			ProductDto snapshotted = productSnapshot.find(pid);
+			if (snapshotted != null) {
+				products.put(pid, Optional.of(snapshotted));
+			} else {
+				remaining.add(pid);
+			}
+		}
+		for (int from = 0; from < remaining.size(); from += MAX_IDS_PER_QUERY) {
+			for (Product product : productRepository.findByProductIdIn(
+					remaining.subList(from, Math.min(from + MAX_IDS_PER_QUERY, remaining.size())))) {
+				products.put(product.getProductId(), Optional.of(productMapper.toDto(product)));
+			}
+		}
+		for (String pid : pids) {
+			products.putIfAbsent(pid, Optional.empty());
+		}
+		return products;
 	}
 
 	/**
@@ -141,17 +547,57 @@ public class ProductService {
 	 * @return list of products.
 	 */
 	private List<ProductDto> mapProductListToProDtoList(List<Product> products) {
-		return products.stream().map(product -> modelMapper.map(product, ProductDto.class))
+		return products.stream().map(productMapper::toDto)
 				.collect(Collectors.toList());
 	}
 
-	public void removeProduct(String pid) {
-		try {
-			productRepository.deleteByProductId(pid);
-		} catch (Exception e) {
-			LOGGER.error("Product not found with exception: " + e.getMessage());
+	/**
+	 * Method to remove a product with a single delete statement.
+	 * 
+	 * @param pid
+	 * @return whether the product existed.
+	 */
+	@Transactional
+	public boolean removeProduct(String pid) {
+		if (productRepository.deleteByProductId(pid) == 0) {
+			return false;
+		}
+		productCache.invalidate(pid);
+		catalogVersion.increment();
+		productChangeOutbox.removed(pid);
+		return true;
+	}
+
+	/**
+	 * Method to remove many products at once, with one delete statement per chunk of ids. Unknown ids are skipped,
+	 * so a failed request can simply be repeated. The ids of each chunk are looked up first, so that removals are
+	 * only recorded in the change feed for products that existed.
+	 * 
+	 * @param pids
+	 * @return number of requested and of removed products.
+	 */
+	@Transactional
+	public BulkDeleteResultDto removeProducts(List<String> pids) {
+		List<String> distinctPids = requireElements(pids, "productIds").stream().distinct()
+				.collect(Collectors.toList());
+		int maxBulkSize = storeProperties.getProducts().getMaxBulkSize();
+		if (distinctPids.size() > maxBulkSize) {
+			throw new BadRequestException("At most " + maxBulkSize + " products can be removed at once");
 		}
 
+		int deleted = 0;
+		for (int from = 0; from < distinctPids.size(); from += MAX_IDS_PER_QUERY) {
+			List<String> chunk = distinctPids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinctPids.size()));
+			Set<String> existing = productRepository.findExistingProductIds(chunk);
+			deleted += productRepository.deleteByProductIdIn(chunk);
+			chunk.stream().filter(existing::contains).forEach(productChangeOutbox::removed);
+		}
+		LOGGER.info("Bulk remove deleted {} of {} products.", deleted, distinctPids.size());
+		if (deleted > 0) {
+			productCache.invalidateAll(distinctPids);
+			catalogVersion.increment();
+		}
+		return new BulkDeleteResultDto(distinctPids.size(), deleted);
 	}
 
 }
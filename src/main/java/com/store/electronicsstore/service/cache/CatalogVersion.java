@@ -0,0 +1,130 @@
+package com.store.electronicsstore.service.cache;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+
+/**
+ * Version of the whole catalog, incremented by every product write of this node right away and by every change
+ * {@link ProductChangeFeed} reports, which covers the writes of other nodes sharing the database once the feed is
+ * checked for them. Prefixed with an id of the running instance, so a version handed out before a restart never
+ * matches one handed out after it.
+ */
+@Component
+public class CatalogVersion {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogVersion.class);
+
+	private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+	private final String instance = UUID.randomUUID().toString().substring(0, 8);
+
+	private final AtomicLong version = new AtomicLong();
+
+	private final StoreProperties.Feed feedSettings;
+
+	private final ProductChangeFeed productChangeFeed;
+
+	private volatile boolean running;
+
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public CatalogVersion(StoreProperties storeProperties, ProductChangeFeed productChangeFeed) {
+		this.feedSettings = storeProperties.getFeed();
+		this.productChangeFeed = productChangeFeed;
+	}
+
+	/**
+	 * Starts following the change feed.
+	 */
+	@PostConstruct
+	public void start() {
+		running = true;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "catalog-version");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.execute(this::startFollowing);
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * @return the current version, usable as an entity tag.
+	 */
+	public String current() {
+		return instance + "-" + version.get();
+	}
+
+	/**
+	 * Moves to a new version. Within a transaction the version moves again once the transaction completes, so a
+	 * catalog read concurrently with the write is not tagged with the version after the write.
+	 */
+	public void increment() {
+		version.incrementAndGet();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					version.incrementAndGet();
+				}
+			});
+		}
+	}
+
+	private void startFollowing() {
+		long after;
+		try {
+			after = productChangeFeed.recentOffset();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Finding the product change feed position failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(this::startFollowing, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+			return;
+		}
+		follow(after);
+	}
+
+	/**
+	 * Waits for the changes following a position of the feed, moves to a new version when there are any and
+	 * continues after them.
+	 */
+	private void follow(long after) {
+		if (!running) {
+			return;
+		}
+		try {
+			productChangeFeed.poll(after, feedSettings.getMaxBatchSize(), feedSettings.getMaxWait())
+					.thenAcceptAsync(batch -> {
+						if (!batch.getChanges().isEmpty()) {
+							version.incrementAndGet();
+						}
+						follow(batch.getNextOffset());
+					}, scheduler);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Reading product changes for the catalog version failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(() -> follow(after), RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.store.electronicsstore.service.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.datasource.ReadYourWrites;
+import com.store.electronicsstore.service.dto.CacheStatsDto;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Bounded read-through cache of products keyed by product id. Unknown ids are cached as well, for a shorter time,
+ * so repeated lookups of missing products do not reach the database either. Cached products are shared between
+ * callers and must be treated as read-only.
+ * <p>
+ * Invalidated products are reported to {@link ReadYourWrites}, so the next load of them reads the primary instead of
+ * a replica that may still hold their previous state.
+ */
+@Component
+public class ProductCache {
+
+	private final boolean enabled;
+
+	private final Cache<String, Optional<ProductDto>> cache;
+
+	/**
+	 * Number of invalidations so far, tells a multi-get whether its results may be outdated.
+	 */
+	private final AtomicLong invalidations = new AtomicLong();
+
+	private final ReadYourWrites readYourWrites;
+
+	@Autowired
+	public ProductCache(StoreProperties storeProperties, ReadYourWrites readYourWrites) {
+		StoreProperties.Cache settings = storeProperties.getCache();
+		this.readYourWrites = readYourWrites;
+		this.enabled = settings.isEnabled();
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(settings.getMaximumSize())
+				.expireAfter(new TtlExpiry(settings.getTtl().toNanos(), settings.getNegativeTtl().toNanos()))
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Returns the cached lookup result for a product id, calling the loader on a miss.
+	 *
+	 * @param productId
+	 * @param loader    database lookup, returns an empty optional for unknown ids.
+	 * @return the product, empty when it does not exist.
+	 */
+	public Optional<ProductDto> get(String productId, Function<String, Optional<ProductDto>> loader) {
+		if (!enabled) {
+			return load(productId, loader);
+		}
+		return cache.get(productId, id -> load(id, loader));
+	}
+
+	/**
+	 * Returns a product only if it is cached, without loading it.
+	 *
+	 * @param productId
+	 * @return the cached product, null when it is not cached or cached as missing.
+	 */
+	public ProductDto getIfCached(String productId) {
+		Optional<ProductDto> product = enabled ? cache.getIfPresent(productId) : null;
+		return product == null ? null : product.orElse(null);
+	}
+
+	/**
+	 * Returns the cached lookup results for several product ids, calling the loader once for all ids missing from
+	 * the cache. The loaded results are not cached when an invalidation happened while loading, as one of them could
+	 * already be outdated, and are dropped again when one happens while they are being cached.
+	 *
+	 * @param productIds
+	 * @param loader     database lookup of several ids, returns an empty optional for unknown ids.
+	 * @return the lookup result per product id.
+	 */
+	public Map<String, Optional<ProductDto>> getAll(Collection<String> productIds,
+			Function<Set<String>, Map<String, Optional<ProductDto>>> loader) {
+		if (!enabled) {
+			Set<String> ids = new HashSet<>(productIds);
+			return readYourWrites.read(ids, () -> loader.apply(ids));
+		}
+		Map<String, Optional<ProductDto>> products = new HashMap<>(cache.getAllPresent(productIds));
+		Set<String> missingIds = new HashSet<>(productIds);
+		missingIds.removeAll(products.keySet());
+		if (!missingIds.isEmpty()) {
+			long invalidationsBefore = invalidations.get();
+			Map<String, Optional<ProductDto>> loaded = readYourWrites.read(missingIds, () -> loader.apply(missingIds));
+			if (invalidations.get() == invalidationsBefore) {
+				cache.putAll(loaded);
+				// an invalidation between the check and the put may have missed the results just put
+				if (invalidations.get() != invalidationsBefore) {
+					cache.invalidateAll(loaded.keySet());
+				}
+			}
+			products.putAll(loaded);
+		}
+		return products;
+	}
+
+	/**
+	 * Drops a product id from the cache. Within a transaction the id is dropped again once the transaction
+	 * completes, so a concurrent reader cannot keep the state from before the commit cached.
+	 *
+	 * @param productId
+	 */
+	public void invalidate(String productId) {
+		invalidateAll(Collections.singleton(productId));
+	}
+
+	/**
+	 * Drops several product ids from the cache, like {@link #invalidate(String)} with a single transaction callback
+	 * for all of them.
+	 *
+	 * @param productIds
+	 */
+	public void invalidateAll(Collection<String> productIds) {
+		invalidations.incrementAndGet();
+		cache.invalidateAll(productIds);
+		readYourWrites.written(productIds);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					invalidations.incrementAndGet();
+					cache.invalidateAll(productIds);
+				}
+			});
+		}
+	}
+
+	private Optional<ProductDto> load(String productId, Function<String, Optional<ProductDto>> loader) {
+		return readYourWrites.read(Collections.singleton(productId), () -> loader.apply(productId));
+	}
+
+	/**
+	 * @return hit, miss and eviction counters since startup.
+	 */
+	public CacheStatsDto stats() {
+		CacheStats stats = cache.stats();
+		return CacheStatsDto.builder()
+				.size(cache.estimatedSize())
+				.hitCount(stats.hitCount())
+				.missCount(stats.missCount())
+				.evictionCount(stats.evictionCount())
+				.hitRate(stats.hitRate())
+				.build();
+	}
+
+	/**
+	 * Expires found products after the regular ttl and missing ones after the negative ttl.
+	 */
+	private static final class TtlExpiry implements Expiry<String, Optional<ProductDto>> {
+
+		private final long ttlNanos;
+
+		private final long negativeTtlNanos;
+
+		private TtlExpiry(long ttlNanos, long negativeTtlNanos) {
+			this.ttlNanos = ttlNanos;
+			this.negativeTtlNanos = negativeTtlNanos;
+		}
+
+		@Override
+		public long expireAfterCreate(String key, Optional<ProductDto> value, long currentTime) {
+			return value.isPresent() ? ttlNanos : negativeTtlNanos;
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, Optional<ProductDto> value, long currentTime,
+				long currentDuration) {
+			return expireAfterCreate(key, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, Optional<ProductDto> value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.store.electronicsstore.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of removing several products at once.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkDeleteResultDto {
+
+	/**
+	 * Number of distinct product ids submitted.
+	 */
+	private int requested;
+
+	/**
+	 * Number of products removed, the other submitted ids did not exist.
+	 */
+	private int deleted;
+
+}
@@ -0,0 +1,33 @@
+package com.store.electronicsstore.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome for a single product of a bulk ingestion.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkProductItemResultDto {
+
+	public enum Status {
+		CREATED, DUPLICATE, INVALID
+	}
+
+	/**
+	 * Product Id as submitted.
+	 */
+	private String productId;
+
+	private Status status;
+
+	/**
+	 * Reason the product was rejected, null when it was created.
+	 */
+	private String message;
+
+}
@@ -0,0 +1,34 @@
+package com.store.electronicsstore.service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk product ingestion.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkProductResultDto {
+
+	/**
+	 * Number of products stored.
+	 */
+	private int created;
+
+	/**
+	 * Number of products skipped because they were invalid or duplicates.
+	 */
+	private int rejected;
+
+	/**
+	 * One result per submitted product, in submission order.
+	 */
+	private List<BulkProductItemResultDto> items;
+
+}
@@ -0,0 +1,33 @@
+package com.store.electronicsstore.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of an in-process cache.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDto {
+
+	/**
+	 * Approximate number of cached entries.
+	 */
+	private long size;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	/**
+	 * Ratio of lookups served from the cache, 1.0 when there was no lookup yet.
+	 */
+	private double hitRate;
+
+}
@@ -0,0 +1,22 @@
+package com.store.electronicsstore.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Current inventory of a product, pushed to inventory stream subscribers. Removed products come without inventory.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class InventoryUpdateDto {
+
+	private String productId;
+
+	private Integer inventory;
+
+}
@@ -0,0 +1,29 @@
+package com.store.electronicsstore.service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of looking up several products by product id at once.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatchDto {
+
+	/**
+	 * Products found, in the order their ids were requested.
+	 */
+	private List<ProductDto> products;
+
+	/**
+	 * Requested product ids that do not exist.
+	 */
+	private List<String> missing;
+
+}
@@ -0,0 +1,30 @@
+package com.store.electronicsstore.service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Consecutive changes of the change feed.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductChangeBatchDto {
+
+	/**
+	 * Changes in feed order, empty when there were none within the wait time.
+	 */
+	private List<ProductChangeDto> changes;
+
+	/**
+	 * Position to ask for the following changes with, the sequence of the last change or the requested position
+	 * when there were none.
+	 */
+	private long nextOffset;
+
+}
@@ -0,0 +1,42 @@
+package com.store.electronicsstore.service.dto;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One change of a product in the change feed. Only the fields the change set are included.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChangeDto {
+
+	/**
+	 * Position of the change in the feed, increasing but not contiguous.
+	 */
+	private long sequence;
+
+	private String productId;
+
+	private ProductChangeEvent.Type type;
+
+	private String name;
+
+	private String manufacturer;
+
+	private Float price;
+
+	private Integer inventory;
+
+	private Instant changedAt;
+
+}
@@ -53,4 +53,23 @@ public class ProductDto {
 	@Min(value = 0, message = "Inventory should be positive value.")
 	private int inventory;
 
+	/**
+	 * Version of the stored product, incremented by every change.
+	 */
+	@JsonIgnore
+	@ApiModelProperty(hidden = true)
+	private long version;
+
+	/**
+	 * @return token that changes whenever the product changes, also when it is removed and added again.
+	 */
+	@JsonIgnore
+	public String getRevision() {
+		return revision(id, version);
+	}
+
+	public static String revision(Long id, long version) {
+		return id + "-" + version;
+	}
+
 }
@@ -0,0 +1,29 @@
+package com.store.electronicsstore.service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of the product catalog.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPageDto {
+
+	/**
+	 * Products of this page, ordered by their internal id.
+	 */
+	private List<ProductDto> products;
+
+	/**
+	 * Opaque token to fetch the following page, null when this is the last page.
+	 */
+	private String nextCursor;
+
+}
@@ -0,0 +1,44 @@
+package com.store.electronicsstore.service.dto;
+
+import org.springframework.data.domain.Sort;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+/**
+ * Filters, order and page of a product search. Unset filters match every product.
+ */
+@Data
+public class ProductSearchCriteria {
+
+	public enum NameMatch {
+		PREFIX, CONTAINS
+	}
+
+	@ApiModelProperty(value = "Exact manufacturer")
+	private String manufacturer;
+
+	@ApiModelProperty(value = "Part of the product name, see nameMatch")
+	private String name;
+
+	@ApiModelProperty(value = "Whether the name has to start with or only contain the given name, PREFIX by default")
+	private NameMatch nameMatch = NameMatch.PREFIX;
+
+	@ApiModelProperty(value = "Lowest price, inclusive")
+	private Float minPrice;
+
+	@ApiModelProperty(value = "Highest price, inclusive")
+	private Float maxPrice;
+
+	@ApiModelProperty(value = "One of productId, name, manufacturer, price")
+	private String sortBy = "productId";
+
+	private Sort.Direction direction = Sort.Direction.ASC;
+
+	@ApiModelProperty(value = "Zero based page number")
+	private int page = 0;
+
+	@ApiModelProperty(value = "Page size, the configured default when not set")
+	private Integer size;
+
+}
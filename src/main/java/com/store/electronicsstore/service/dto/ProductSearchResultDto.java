@@ -0,0 +1,33 @@
+package com.store.electronicsstore.service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of product search results.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSearchResultDto {
+
+	private List<ProductDto> products;
+
+	/**
+	 * Zero based page number.
+	 */
+	private int page;
+
+	private int size;
+
+	/**
+	 * Whether a following page exists.
+	 */
+	private boolean hasNext;
+
+}
@@ -1,19 +1,35 @@
 package com.store.electronicsstore.service.exceptions;
 
+import java.util.concurrent.RejectedExecutionException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @ControllerAdvice
 public class Exceptionhelper {
 	private static final Logger LOGGER = LoggerFactory.getLogger(Exceptionhelper.class);
 
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public Exceptionhelper(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
 	@ExceptionHandler(value = { ProductAlreadyExistsException.class })
 	public ResponseEntity<ExceptionResponse> handleDuplicateProduct(ProductAlreadyExistsException ex) {
 		LOGGER.error("Duplicate Input Exception");
+		countError(ex, HttpStatus.UNPROCESSABLE_ENTITY);
 
 		return new ResponseEntity<ExceptionResponse>(new ExceptionResponse(ex.getMessage()),
 				HttpStatus.UNPROCESSABLE_ENTITY);
@@ -21,16 +37,64 @@ public class Exceptionhelper {
 
 	@ExceptionHandler(value = { ProductNotFoundException.class })
 	public Object handleBadUpdateRequest(ProductNotFoundException ex) {
-		LOGGER.error("Id not present in DB Exception: ", ex.getMessage());
+		LOGGER.error("Id not present in DB Exception: {}", ex.getMessage());
+		countError(ex, HttpStatus.NOT_FOUND);
 
 		return new ResponseEntity<ExceptionResponse>(new ExceptionResponse(ex.getMessage()), HttpStatus.NOT_FOUND);
 	}
 
 	@ExceptionHandler(value = { ProductsNotPresentException.class })
 	public Object handleNoProductsFoundRequest(ProductsNotPresentException ex) {
-		LOGGER.error("No products found Exception: ", ex.getMessage());
+		LOGGER.error("No products found Exception: {}", ex.getMessage());
+		countError(ex, HttpStatus.NOT_FOUND);
 
 		return new ResponseEntity<ExceptionResponse>(new ExceptionResponse(ex.getMessage()), HttpStatus.NOT_FOUND);
 	}
 
+	@ExceptionHandler(value = { InsufficientInventoryException.class })
+	public Object handleInsufficientInventory(InsufficientInventoryException ex) {
+		LOGGER.error("Insufficient inventory Exception: {}", ex.getMessage());
+		countError(ex, HttpStatus.CONFLICT);
+
+		return new ResponseEntity<ExceptionResponse>(new ExceptionResponse(ex.getMessage()), HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler(value = { OptimisticLockingFailureException.class })
+	public Object handleConcurrentUpdate(OptimisticLockingFailureException ex) {
+		LOGGER.error("Concurrent update Exception: {}", ex.getMessage());
+		countError(ex, HttpStatus.CONFLICT);
+
+		return new ResponseEntity<ExceptionResponse>(
+				new ExceptionResponse("The product was changed concurrently, please retry."), HttpStatus.CONFLICT);
+	}
+
+	@ExceptionHandler(value = { BadRequestException.class })
+	public Object handleBadRequest(BadRequestException ex) {
+		LOGGER.error("Bad request Exception: {}", ex.getMessage());
+		countError(ex, HttpStatus.BAD_REQUEST);
+
+		return new ResponseEntity<ExceptionResponse>(new ExceptionResponse(ex.getMessage()), HttpStatus.BAD_REQUEST);
+	}
+
+	@ExceptionHandler(value = { RejectedExecutionException.class })
+	public Object handleOverload(RejectedExecutionException ex) {
+		LOGGER.warn("Request rejected, no capacity left: {}", ex.getMessage());
+		countError(ex, HttpStatus.TOO_MANY_REQUESTS);
+
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1")
+				.body(new ExceptionResponse("The store is busy, please retry."));
+	}
+
+	/**
+	 * Counts handled errors per exception type and response status as {@code store.errors}.
+	 */
+	private void countError(Exception ex, HttpStatus status) {
+		Counter.builder("store.errors")
+				.description("Requests answered with an error response")
+				.tag("exception", ex.getClass().getSimpleName())
+				.tag("status", String.valueOf(status.value()))
+				.register(meterRegistry)
+				.increment();
+	}
+
 }
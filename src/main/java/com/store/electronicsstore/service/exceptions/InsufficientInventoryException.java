@@ -0,0 +1,10 @@
+package com.store.electronicsstore.service.exceptions;
+
+public class InsufficientInventoryException extends RuntimeException {
+
+	private static final long serialVersionUID = 4632853027164517021L;
+
+	public InsufficientInventoryException(String message) {
+		super(message);
+	}
+}
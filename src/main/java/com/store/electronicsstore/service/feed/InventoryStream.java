@@ -0,0 +1,440 @@
+package com.store.electronicsstore.service.feed;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.dto.InventoryUpdateDto;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pushes the inventory of products to subscribed clients as server-sent events. A subscriber first gets the current
+ * inventory of the products it follows, then every inventory {@link ProductChangeFeed} reports for them, whichever
+ * node committed the change. A reconnecting client starts over with the current inventories.
+ * <p>
+ * Publishing never waits for a client: a change only replaces the update pending for the product at each of its
+ * subscribers and hands them to a few sender threads. Streams are written without blocking: a sender writes to a
+ * subscriber only while its connection takes data and moves on otherwise, the container hands the subscriber back
+ * once the client has read what was written. A subscriber reading slower than its products change skips
+ * intermediate inventories and gets the latest, so a client that stops reading holds neither a thread nor more than
+ * one update per product it follows.
+ */
+@Component
+public class InventoryStream {
+
+	static final String INVENTORY_EVENT = "inventory";
+
+	static final String REMOVED_EVENT = "removed";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InventoryStream.class);
+
+	private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+	/**
+	 * Characters of events written at once, a chunk stays within the response buffer so writing it never blocks.
+	 */
+	private static final int CHUNK_SIZE = 2048;
+
+	private final StoreProperties.Stream settings;
+
+	private final StoreProperties.Feed feedSettings;
+
+	private final ProductChangeFeed productChangeFeed;
+
+	private final ProductRepository productRepository;
+
+	private final ObjectMapper objectMapper;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, Set<Subscriber>> subscribersByProduct = new ConcurrentHashMap<>();
+
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+
+	private final Counter sent;
+
+	private final Counter coalesced;
+
+	private volatile boolean running;
+
+	private ScheduledExecutorService scheduler;
+
+	private ExecutorService sender;
+
+	@Autowired
+	public InventoryStream(StoreProperties storeProperties, ProductChangeFeed productChangeFeed,
+			ProductRepository productRepository, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+		this.settings = storeProperties.getStream();
+		this.feedSettings = storeProperties.getFeed();
+		this.productChangeFeed = productChangeFeed;
+		this.productRepository = productRepository;
+		this.objectMapper = objectMapper;
+		Gauge.builder("store.stream.subscribers", subscriberCount, AtomicInteger::get)
+				.description("Clients subscribed to the inventory stream")
+				.register(meterRegistry);
+		this.sent = Counter.builder("store.stream.updates")
+				.description("Inventory updates for stream subscribers")
+				.tag("outcome", "sent")
+				.register(meterRegistry);
+		this.coalesced = Counter.builder("store.stream.updates")
+				.description("Inventory updates for stream subscribers")
+				.tag("outcome", "coalesced")
+				.register(meterRegistry);
+	}
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "inventory-stream");
+			thread.setDaemon(true);
+			return thread;
+		});
+		AtomicInteger senderCount = new AtomicInteger();
+		sender = Executors.newFixedThreadPool(settings.getSendThreads(), runnable -> {
+			Thread thread = new Thread(runnable, "inventory-stream-send-" + senderCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		long heartbeatInterval = settings.getHeartbeatInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval,
+				TimeUnit.MILLISECONDS);
+		scheduler.execute(this::startFollowing);
+	}
+
+	/**
+	 * Stops publishing and closes the streams of all subscribers.
+	 */
+	@PreDestroy
+	public void stop() {
+		running = false;
+		scheduler.shutdownNow();
+		sender.shutdownNow();
+		for (Subscriber subscriber : subscribers) {
+			unsubscribe(subscriber);
+			subscriber.emitter.complete();
+		}
+	}
+
+	/**
+	 * Subscribes to the inventory of products.
+	 *
+	 * @param productIds products to follow, unknown ones are followed in case they are added.
+	 * @param request    request of the stream, its response is written to once its asynchronous processing started.
+	 * @return stream of {@value #INVENTORY_EVENT} events carrying the current inventory of a product and
+	 *         {@value #REMOVED_EVENT} events for removed products.
+	 */
+	public SseEmitter subscribe(Collection<String> productIds, NativeWebRequest request) {
+		SseEmitter emitter = new SseEmitter(settings.getTimeout().toMillis());
+		Subscriber subscriber = subscribe(productIds, emitter);
+		WebAsyncUtils.getAsyncManager(request).registerDeferredResultInterceptor(subscriber,
+				new DeferredResultProcessingInterceptor() {
+					@Override
+					public <T> void preProcess(NativeWebRequest asyncRequest, DeferredResult<T> deferredResult)
+							throws IOException {
+						HttpServletResponse response = asyncRequest.getNativeResponse(HttpServletResponse.class);
+						subscriber.connect(response.getOutputStream());
+					}
+				});
+		return emitter;
+	}
+
+	/**
+	 * Subscribes to the inventory of products, written to the stream the subscriber is connected to.
+	 */
+	Subscriber subscribe(Collection<String> productIds, SseEmitter emitter) {
+		Set<String> followed = new LinkedHashSet<>(productIds);
+		if (followed.isEmpty()) {
+			throw new BadRequestException("productIds cannot be empty");
+		}
+		if (followed.size() > settings.getMaxProductsPerSubscription()) {
+			throw new BadRequestException(
+					"Cannot follow more than " + settings.getMaxProductsPerSubscription() + " products");
+		}
+		if (subscriberCount.incrementAndGet() > settings.getMaxSubscribers()) {
+			subscriberCount.decrementAndGet();
+			throw new RejectedExecutionException("Inventory stream subscriber limit reached");
+		}
+		Subscriber subscriber = new Subscriber(followed, emitter);
+		subscribers.add(subscriber);
+		emitter.onCompletion(() -> unsubscribe(subscriber));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(e -> unsubscribe(subscriber));
+		for (String productId : followed) {
+			subscribersByProduct.compute(productId, (key, following) -> {
+				Set<Subscriber> updated = following == null ? ConcurrentHashMap.newKeySet() : following;
+				updated.add(subscriber);
+				return updated;
+			});
+		}
+		try {
+			for (Object[] row : productRepository.findInventories(followed)) {
+				subscriber.offerCurrent(new InventoryUpdateDto((String) row[0], (Integer) row[1]));
+			}
+		} catch (RuntimeException e) {
+			unsubscribe(subscriber);
+			throw e;
+		}
+		return subscriber;
+	}
+
+	private void unsubscribe(Subscriber subscriber) {
+		if (!subscribers.remove(subscriber)) {
+			return;
+		}
+		subscriberCount.decrementAndGet();
+		for (String productId : subscriber.productIds) {
+			subscribersByProduct.computeIfPresent(productId, (key, following) -> {
+				following.remove(subscriber);
+				return following.isEmpty() ? null : following;
+			});
+		}
+	}
+
+	private void startFollowing() {
+		long after;
+		try {
+			after = productChangeFeed.recentOffset();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Finding the product change feed position failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(this::startFollowing, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+			return;
+		}
+		follow(after);
+	}
+
+	/**
+	 * Waits for the changes following a position of the feed, publishes them and continues after them.
+	 */
+	private void follow(long after) {
+		if (!running) {
+			return;
+		}
+		try {
+			productChangeFeed.poll(after, feedSettings.getMaxBatchSize(), feedSettings.getMaxWait())
+					.thenAcceptAsync(batch -> {
+						publish(batch.getChanges());
+						follow(batch.getNextOffset());
+					}, scheduler);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Reading product changes for the inventory stream failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(() -> follow(after), RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void publish(List<ProductChangeDto> changes) {
+		Set<Subscriber> notified = new HashSet<>();
+		for (ProductChangeDto change : changes) {
+			Set<Subscriber> following = subscribersByProduct.get(change.getProductId());
+			if (following == null) {
+				continue;
+			}
+			InventoryUpdateDto update = new InventoryUpdateDto(change.getProductId(), change.getInventory());
+			for (Subscriber subscriber : following) {
+				subscriber.offer(update);
+				notified.add(subscriber);
+			}
+		}
+		notified.forEach(Subscriber::schedule);
+	}
+
+	private void heartbeat() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.heartbeat();
+			subscriber.schedule();
+		}
+	}
+
+	/**
+	 * Updates pending for one client, at most one per product, written by one sender thread at a time.
+	 */
+	final class Subscriber implements Runnable, WriteListener {
+
+		private final Set<String> productIds;
+
+		private final SseEmitter emitter;
+
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		/**
+		 * Counts the calls of {@link #onWritePossible()}, so one arriving while the subscriber is being written to is
+		 * not lost.
+		 */
+		private final AtomicInteger writable = new AtomicInteger();
+
+		private final Set<String> published = new HashSet<>();
+
+		private Map<String, InventoryUpdateDto> pending = new LinkedHashMap<>();
+
+		private boolean heartbeatDue;
+
+		private volatile ServletOutputStream output;
+
+		private volatile boolean nonBlocking;
+
+		private Subscriber(Set<String> productIds, SseEmitter emitter) {
+			this.productIds = productIds;
+			this.emitter = emitter;
+		}
+
+		/**
+		 * Starts writing to the response of the stream, switching it to non-blocking writes.
+		 *
+		 * @param output output stream of the response, its asynchronous processing has to be started.
+		 */
+		void connect(ServletOutputStream output) {
+			this.output = output;
+			nonBlocking = true;
+			try {
+				// the container calls onWritePossible() as soon as the response takes data
+				output.setWriteListener(this);
+			} catch (UnsupportedOperationException e) {
+				// blocking writes only, such as to a mock response
+				nonBlocking = false;
+				onWritePossible();
+			}
+		}
+
+		@Override
+		public void onWritePossible() {
+			writable.incrementAndGet();
+			schedule();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			LOGGER.debug("Inventory stream failed: {}", t.getMessage());
+			unsubscribe(this);
+		}
+
+		private synchronized void offer(InventoryUpdateDto update) {
+			published.add(update.getProductId());
+			if (pending.put(update.getProductId(), update) != null) {
+				coalesced.increment();
+			}
+		}
+
+		/**
+		 * Offers an inventory read at subscription, unless a newer one was published meanwhile.
+		 */
+		private synchronized void offerCurrent(InventoryUpdateDto update) {
+			if (!published.contains(update.getProductId())) {
+				pending.put(update.getProductId(), update);
+			}
+		}
+
+		private synchronized void heartbeat() {
+			heartbeatDue = true;
+		}
+
+		private synchronized boolean hasPending() {
+			return !pending.isEmpty() || heartbeatDue;
+		}
+
+		private void schedule() {
+			if (sending.compareAndSet(false, true)) {
+				try {
+					sender.execute(this);
+				} catch (RejectedExecutionException e) {
+					sending.set(false);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int wakeups = writable.get();
+			boolean written;
+			try {
+				written = writeNext();
+			} catch (IOException | IllegalStateException e) {
+				// the client is gone or the stream already completed, the container reports the error
+				LOGGER.debug("Sending inventory updates failed: {}", e.getMessage());
+				unsubscribe(this);
+				return;
+			}
+			sending.set(false);
+			// a stream not taking data is scheduled again by onWritePossible(), unless that came meanwhile already
+			if (written ? hasPending() : writable.get() != wakeups) {
+				schedule();
+			}
+		}
+
+		/**
+		 * Writes the pending updates that fit one chunk, or a heartbeat when there are none.
+		 *
+		 * @return false when the stream does not take data at the moment.
+		 * @throws IOException
+		 */
+		private boolean writeNext() throws IOException {
+			ServletOutputStream connected = output;
+			if (connected == null || !hasPending()) {
+				return connected != null;
+			}
+			if (nonBlocking && !connected.isReady()) {
+				return false;
+			}
+			StringBuilder chunk = new StringBuilder();
+			int updates = 0;
+			synchronized (this) {
+				Iterator<InventoryUpdateDto> iterator = pending.values().iterator();
+				while (iterator.hasNext() && chunk.length() < CHUNK_SIZE) {
+					InventoryUpdateDto update = iterator.next();
+					iterator.remove();
+					chunk.append("event:").append(update.getInventory() == null ? REMOVED_EVENT : INVENTORY_EVENT)
+							.append("\ndata:").append(objectMapper.writeValueAsString(update)).append("\n\n");
+					updates++;
+				}
+				if (updates == 0) {
+					chunk.append(":heartbeat\n\n");
+				}
+				heartbeatDue = false;
+			}
+			connected.write(chunk.toString().getBytes(StandardCharsets.UTF_8));
+			connected.flush();
+			sent.increment(updates);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package com.store.electronicsstore.service.feed;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+import com.store.electronicsstore.domain.ProductChangeEventRepository;
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Feed of the product changes written by {@link ProductChangeOutbox}, read by position so that consumers only fetch
+ * what changed since the last change they processed.
+ * <p>
+ * Sequence numbers are assigned at insert, a change can therefore commit after one with a higher number. The feed
+ * stops in front of a missing number until the change shows up or {@code store.feed.gap-timeout} has passed since
+ * this node first ran into the gap, so a consumer never moves past a change still committing. The timeout is
+ * measured with the clock of this node alone, a writing node with a clock running behind cannot shorten it. Once a
+ * read has moved past a gap, later reads pass it right away; after a restart a gap is waited for once more.
+ * <p>
+ * A request finding no changes can wait for them. Waiting requests hold no thread: they are completed when a
+ * transaction of this node commits changes, and checked every {@code store.feed.poll-interval} for changes of other
+ * nodes, with one query per distinct position for all requests waiting at it.
+ */
+@Component
+public class ProductChangeFeed {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductChangeFeed.class);
+
+	private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+	private final StoreProperties.Feed settings;
+
+	private final ProductChangeEventRepository productChangeEventRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean checkScheduled = new AtomicBoolean();
+
+	/**
+	 * First missing sequence number of every gap reads are stopping in front of, with the {@link System#nanoTime()}
+	 * they first did.
+	 */
+	private final ConcurrentNavigableMap<Long, Long> gapsSeen = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Highest position a read has moved to. Every gap below it has been filled or has timed out.
+	 */
+	private final AtomicLong passed = new AtomicLong();
+
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public ProductChangeFeed(StoreProperties storeProperties,
+			ProductChangeEventRepository productChangeEventRepository, ProductChangeOutbox productChangeOutbox,
+			PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+		this.settings = storeProperties.getFeed();
+		this.productChangeEventRepository = productChangeEventRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		productChangeOutbox.addListener(changes -> scheduleCheck());
+		Gauge.builder("store.feed.waiting", waiters, Set::size)
+				.description("Change feed requests waiting for changes")
+				.register(meterRegistry);
+	}
+
+	@PostConstruct
+	public void start() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "product-change-feed");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long pollInterval = settings.getPollInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::checkWaiters, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(this::purgeQuietly, PURGE_INTERVAL.toMillis(), PURGE_INTERVAL.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops waiting, waiting requests are answered without changes.
+	 */
+	@PreDestroy
+	public void stop() {
+		scheduler.shutdownNow();
+		for (Waiter waiter : waiters) {
+			expire(waiter);
+		}
+	}
+
+	/**
+	 * Returns the changes following a position of the feed.
+	 *
+	 * @param after position of the last change processed, 0 to start with the oldest change kept.
+	 * @param limit maximum number of changes, null for the configured default.
+	 * @return changes in feed order and the position to continue from.
+	 */
+	public ProductChangeBatchDto read(long after, Integer limit) {
+		if (after < 0) {
+			throw new BadRequestException("after cannot be negative");
+		}
+		List<ProductChangeEvent> events = productChangeEventRepository.findAfter(after,
+				PageRequest.of(0, batchSize(limit)));
+		long now = System.nanoTime();
+		long passedBefore = passed.get();
+		List<ProductChangeDto> changes = new ArrayList<>(events.size());
+		long nextOffset = after;
+		boolean stopped = false;
+		long expected = after + 1;
+		for (ProductChangeEvent event : events) {
+			// every gap of the batch starts timing now, so gaps further on are not waited for one after another
+			if (event.getSequence() != expected && expected > passedBefore
+					&& now - gapsSeen.computeIfAbsent(expected, missing -> now) < settings.getGapTimeout().toNanos()) {
+				stopped = true;
+			}
+			if (!stopped) {
+				changes.add(toDto(event));
+				nextOffset = event.getSequence();
+			}
+			expected = event.getSequence() + 1;
+		}
+		if (nextOffset > after) {
+			passed.accumulateAndGet(nextOffset, Math::max);
+			gapsSeen.headMap(nextOffset, true).clear();
+		}
+		return new ProductChangeBatchDto(changes, nextOffset);
+	}
+
+	/**
+	 * Returns a position for consumers only interested in changes from now on. It lies {@code store.feed.gap-timeout}
+	 * back, so changes still committing are not skipped, and the few changes since are read again.
+	 *
+	 * @return position to read from.
+	 */
+	public long recentOffset() {
+		return productChangeEventRepository.findLastSequenceBefore(Instant.now().minus(settings.getGapTimeout()));
+	}
+
+	/**
+	 * Like {@link #read(long, Integer)}, but waits for changes when there are none yet.
+	 *
+	 * @param after position of the last change processed.
+	 * @param limit maximum number of changes, null for the configured default.
+	 * @param wait  how long to wait for changes, bounded by {@code store.feed.max-wait}.
+	 * @return completed with the changes, or without any once the wait time has passed.
+	 */
+	public CompletableFuture<ProductChangeBatchDto> poll(long after, Integer limit, Duration wait) {
+		ProductChangeBatchDto batch = read(after, limit);
+		if (!batch.getChanges().isEmpty() || wait.isZero() || wait.isNegative()) {
+			return CompletableFuture.completedFuture(batch);
+		}
+		Waiter waiter = new Waiter(after, batchSize(limit));
+		waiters.add(waiter);
+		Duration timeout = wait.compareTo(settings.getMaxWait()) > 0 ? settings.getMaxWait() : wait;
+		scheduler.schedule(() -> expire(waiter), timeout.toMillis(), TimeUnit.MILLISECONDS);
+		return waiter.result;
+	}
+
+	private int batchSize(Integer limit) {
+		return limit == null ? settings.getDefaultBatchSize()
+				: Math.max(1, Math.min(limit, settings.getMaxBatchSize()));
+	}
+
+	/**
+	 * Checks the waiting requests soon, once per burst of commits.
+	 */
+	private void scheduleCheck() {
+		if (!waiters.isEmpty() && checkScheduled.compareAndSet(false, true)) {
+			scheduler.execute(() -> {
+				checkScheduled.set(false);
+				checkWaiters();
+			});
+		}
+	}
+
+	private void checkWaiters() {
+		Map<String, ProductChangeBatchDto> batches = new HashMap<>();
+		for (Waiter waiter : waiters) {
+			try {
+				ProductChangeBatchDto batch = batches.computeIfAbsent(waiter.after + "/" + waiter.limit,
+						key -> read(waiter.after, waiter.limit));
+				if (!batch.getChanges().isEmpty() && waiters.remove(waiter)) {
+					waiter.result.complete(batch);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.warn("Reading product changes for waiting requests failed, retrying with the next check.", e);
+				return;
+			}
+		}
+	}
+
+	private void expire(Waiter waiter) {
+		if (waiters.remove(waiter)) {
+			waiter.result.complete(new ProductChangeBatchDto(Collections.emptyList(), waiter.after));
+		}
+	}
+
+	private void purgeQuietly() {
+		try {
+			Instant before = Instant.now().minus(settings.getRetention());
+			Integer purged = transactionTemplate
+					.execute(status -> productChangeEventRepository.deleteCreatedBefore(before));
+			if (purged != null && purged > 0) {
+				LOGGER.info("Purged {} product changes written before {}.", purged, before);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Purging product changes failed, retrying with the next purge.", e);
+		}
+	}
+
+	private static ProductChangeDto toDto(ProductChangeEvent event) {
+		return ProductChangeDto.builder()
+				.sequence(event.getSequence())
+				.productId(event.getProductId())
+				.type(event.getType())
+				.name(event.getName())
+				.manufacturer(event.getManufacturer())
+				.price(event.getPrice())
+				.inventory(event.getInventory())
+				.changedAt(event.getCreatedAt())
+				.build();
+	}
+
+	/**
+	 * Request waiting for the changes following a position.
+	 */
+	private static final class Waiter {
+
+		private final long after;
+
+		private final int limit;
+
+		private final CompletableFuture<ProductChangeBatchDto> result = new CompletableFuture<>();
+
+		private Waiter(long after, int limit) {
+			this.after = after;
+			this.limit = limit;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.store.electronicsstore.service.feed;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.store.electronicsstore.domain.Product;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+import com.store.electronicsstore.domain.ProductChangeEventRepository;
+
+/**
+ * Transactional outbox of product changes. The changes recorded during a transaction are written to the
+ * {@code product_change_events} table right before it commits, so they commit or roll back together with the change
+ * itself. Writing them last also gets them their sequence numbers just before the commit, which keeps the gap left
+ * by a transaction still committing short-lived for {@link ProductChangeFeed}. They are written with a few multi-row
+ * inserts rather than one insert per change, the sequences being generated by the database.
+ * <p>
+ * Listeners are handed the changes of every transaction once it has committed, on the committing thread.
+ */
+@Component
+public class ProductChangeOutbox {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductChangeOutbox.class);
+
+	private final ProductChangeEventRepository productChangeEventRepository;
+
+	private final List<Consumer<List<ProductChangeEvent>>> listeners = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	public ProductChangeOutbox(ProductChangeEventRepository productChangeEventRepository) {
+		this.productChangeEventRepository = productChangeEventRepository;
+	}
+
+	/**
+	 * Registers a listener for committed changes. Listeners must not block, they delay the return of the
+	 * committing call.
+	 *
+	 * @param listener
+	 */
+	public void addListener(Consumer<List<ProductChangeEvent>> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Records that a product was stored for the first time.
+	 *
+	 * @param product
+	 */
+	public void created(Product product) {
+		record(withFields(ProductChangeEvent.Type.CREATED, product));
+	}
+
+	/**
+	 * Records that the fields of a product were overwritten.
+	 *
+	 * @param product
+	 */
+	public void updated(Product product) {
+		record(withFields(ProductChangeEvent.Type.UPDATED, product));
+	}
+
+	/**
+	 * Records the inventory of a product after it changed.
+	 *
+	 * @param productId
+	 * @param inventory
+	 */
+	public void inventoryChanged(String productId, int inventory) {
+		record(ProductChangeEvent.builder()
+				.productId(productId)
+				.type(ProductChangeEvent.Type.INVENTORY_CHANGED)
+				.inventory(inventory)
+				.build());
+	}
+
+	/**
+	 * Records that a product was removed.
+	 *
+	 * @param productId
+	 */
+	public void removed(String productId) {
+		record(ProductChangeEvent.builder()
+				.productId(productId)
+				.type(ProductChangeEvent.Type.REMOVED)
+				.build());
+	}
+
+	private static ProductChangeEvent withFields(ProductChangeEvent.Type type, Product product) {
+		return ProductChangeEvent.builder()
+				.productId(product.getProductId())
+				.type(type)
+				.name(product.getName())
+				.manufacturer(product.getManufacturer())
+				.price(product.getPrice())
+				.inventory(product.getInventory())
+				.build();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void record(ProductChangeEvent event) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Product changes can only be recorded within a transaction");
+		}
+		List<ProductChangeEvent> pending = (List<ProductChangeEvent>) TransactionSynchronizationManager.getResource(this);
+		if (pending == null) {
+			pending = new ArrayList<>();
+			TransactionSynchronizationManager.bindResource(this, pending);
+			TransactionSynchronizationManager.registerSynchronization(new PendingChanges(pending));
+		}
+		pending.add(event);
+	}
+
+	/**
+	 * Writes the changes of one transaction before it commits and hands them to the listeners after.
+	 */
+	private final class PendingChanges extends TransactionSynchronizationAdapter {
+
+		private final List<ProductChangeEvent> changes;
+
+		private PendingChanges(List<ProductChangeEvent> changes) {
+			this.changes = changes;
+		}
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			Instant now = Instant.now();
+			changes.forEach(change -> change.setCreatedAt(now));
+			productChangeEventRepository.insertAll(changes);
+		}
+
+		@Override
+		public void afterCommit() {
+			List<ProductChangeEvent> committed = Collections.unmodifiableList(changes);
+			for (Consumer<List<ProductChangeEvent>> listener : listeners) {
+				try {
+					listener.accept(committed);
+				} catch (RuntimeException e) {
+					LOGGER.warn("Product change listener failed: {}", e.getMessage(), e);
+				}
+			}
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(ProductChangeOutbox.this);
+		}
+	}
+}
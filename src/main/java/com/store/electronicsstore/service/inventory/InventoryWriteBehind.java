@@ -0,0 +1,343 @@
+package com.store.electronicsstore.service.inventory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.InventoryJournalCheckpoint;
+import com.store.electronicsstore.domain.InventoryJournalCheckpointRepository;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.cache.CatalogVersion;
+import com.store.electronicsstore.service.cache.ProductCache;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+import com.store.electronicsstore.service.exceptions.InsufficientInventoryException;
+import com.store.electronicsstore.service.exceptions.ProductNotFoundException;
+import com.store.electronicsstore.service.feed.ProductChangeOutbox;
+
+/**
+ * Optional write-behind mode for inventory adjustments of hot products. Adjustments are checked against an
+ * in-memory view of the available inventory, journaled locally, summed up per product in striped counters and
+ * written to the products table as one update per product and flush interval.
+ * <p>
+ * Every flush records the last journal segment it covers in the same transaction as the inventory updates, so
+ * replaying the journal after a crash applies each acknowledged adjustment exactly once. The in-memory view is
+ * re-read from the database after every flush, which is also when changes made through other paths, or on other
+ * nodes, become visible to it. The resulting inventory of every flushed product is recorded in the change feed
+ * within the same transaction.
+ */
+@Component
+public class InventoryWriteBehind {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InventoryWriteBehind.class);
+
+	private final StoreProperties.WriteBehind settings;
+
+	private final ProductRepository productRepository;
+
+	private final InventoryJournalCheckpointRepository checkpointRepository;
+
+	private final ProductCache productCache;
+
+	private final CatalogVersion catalogVersion;
+
+	private final ProductChangeOutbox productChangeOutbox;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ConcurrentMap<String, HotSku> skus = new ConcurrentHashMap<>();
+
+	/**
+	 * Shared by adjustments so that a flush sees every journaled adjustment in the counters, and vice versa. Taken
+	 * exclusively while the in-memory view is re-based as well, so that no reservation is in the view but not yet in
+	 * the counters then.
+	 */
+	private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+	private InventoryJournal journal;
+
+	private ScheduledExecutorService flusher;
+
+	@Autowired
+	public InventoryWriteBehind(StoreProperties storeProperties, ProductRepository productRepository,
+			InventoryJournalCheckpointRepository checkpointRepository, ProductCache productCache,
+			CatalogVersion catalogVersion, ProductChangeOutbox productChangeOutbox,
+			PlatformTransactionManager transactionManager) {
+		this.settings = storeProperties.getInventory().getWriteBehind();
+		this.productRepository = productRepository;
+		this.checkpointRepository = checkpointRepository;
+		this.productCache = productCache;
+		this.catalogVersion = catalogVersion;
+		this.productChangeOutbox = productChangeOutbox;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	public boolean isEnabled() {
+		return settings.isEnabled();
+	}
+
+	/**
+	 * Replays what the previous run left in the journal and starts the periodic flush.
+	 *
+	 * @throws IOException
+	 */
+	@PostConstruct
+	public void start() throws IOException {
+		if (!isEnabled()) {
+			return;
+		}
+		journal = new InventoryJournal(Paths.get(settings.getJournalDir()), settings.getJournalName(),
+				settings.isFsync());
+		long checkpoint = checkpointRepository.findById(settings.getJournalName())
+				.map(InventoryJournalCheckpoint::getSegment).orElse(0L);
+		long lastSegment = checkpoint;
+		Map<String, Long> pending = new HashMap<>();
+		for (long segment : journal.existingSegments()) {
+			if (segment > checkpoint) {
+				journal.read(segment).forEach((productId, delta) -> pending.merge(productId, delta, Long::sum));
+			}
+			lastSegment = Math.max(lastSegment, segment);
+		}
+		if (lastSegment > checkpoint) {
+			LOGGER.info("Replaying journaled inventory adjustments of {} products.", pending.size());
+			apply(pending, lastSegment);
+		}
+		journal.deleteUpTo(lastSegment);
+		journal.open(lastSegment);
+
+		long interval = settings.getFlushInterval().toMillis();
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "inventory-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the periodic flush and writes what is still pending.
+	 *
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@PreDestroy
+	public void stop() throws IOException, InterruptedException {
+		if (flusher == null) {
+			return;
+		}
+		flusher.shutdown();
+		flusher.awaitTermination(settings.getFlushInterval().toMillis() * 2, TimeUnit.MILLISECONDS);
+		flush();
+		journal.close();
+	}
+
+	/**
+	 * Accepts an inventory adjustment once it is journaled. It reaches the database with the next flush.
+	 *
+	 * @param productId
+	 * @param delta     number of items to add, negative to remove items.
+	 * @return the inventory after the adjustment, as seen by this node.
+	 */
+	public int adjust(String productId, int delta) {
+		HotSku sku = skus.computeIfAbsent(productId, this::load);
+		long inventory;
+		journalLock.readLock().lock();
+		try {
+			inventory = sku.reserve(productId, delta);
+			journal.append(productId, delta);
+			sku.pending.add(delta);
+		} catch (IOException e) {
+			sku.available.addAndGet(-delta);
+			throw new UncheckedIOException("Could not journal inventory adjustment of product " + productId, e);
+		} finally {
+			journalLock.readLock().unlock();
+		}
+		return (int) inventory;
+	}
+
+	/**
+	 * @param productId
+	 * @return the inventory of a product including adjustments not flushed yet, empty when the product is not
+	 *         tracked.
+	 */
+	public OptionalInt available(String productId) {
+		HotSku sku = isEnabled() ? skus.get(productId) : null;
+		return sku == null ? OptionalInt.empty() : OptionalInt.of((int) sku.available.get());
+	}
+
+	/**
+	 * Writes the adjustments accumulated since the last flush to the database.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		Map<String, Long> deltas = new HashMap<>();
+		long segment;
+		journalLock.writeLock().lock();
+		try {
+			segment = journal.rotate();
+			skus.forEach((productId, sku) -> {
+				long delta = sku.pending.sumThenReset();
+				if (delta != 0) {
+					deltas.put(productId, delta);
+				}
+			});
+		} finally {
+			journalLock.writeLock().unlock();
+		}
+
+		try {
+			apply(deltas, segment);
+		} catch (RuntimeException e) {
+			// still journaled, the next flush covers these adjustments together with its own
+			deltas.forEach((productId, delta) -> skus.get(productId).pending.add(delta));
+			throw e;
+		}
+		journal.deleteUpTo(segment);
+		deltas.keySet().forEach(productCache::invalidate);
+		if (!deltas.isEmpty()) {
+			catalogVersion.increment();
+		}
+		resync();
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (Exception e) {
+			LOGGER.error("Flushing inventory adjustments failed, retrying with the next flush.", e);
+		}
+	}
+
+	private void apply(Map<String, Long> deltas, long segment) {
+		transactionTemplate.execute(status -> {
+			deltas.forEach(this::applyDelta);
+			if (!deltas.isEmpty()) {
+				for (Object[] row : productRepository.findInventories(new ArrayList<>(deltas.keySet()))) {
+					productChangeOutbox.inventoryChanged((String) row[0], (Integer) row[1]);
+				}
+			}
+			checkpointRepository.save(new InventoryJournalCheckpoint(settings.getJournalName(), segment));
+			return null;
+		});
+	}
+
+	/**
+	 * Writes the summed adjustments of a product in steps that fit the inventory column. A step that would take the
+	 * inventory below zero, because it was lowered through another path or on another node meanwhile, leaves zero
+	 * items instead; that update is conditional as well, so a restock committed in between is kept.
+	 */
+	private void applyDelta(String productId, long delta) {
+		long remaining = delta;
+		while (remaining != 0) {
+			int step = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, remaining));
+			remaining -= step;
+			if (productRepository.adjustInventory(productId, step) != 0) {
+				continue;
+			}
+			Optional<Integer> inventory = productRepository.findInventoryByProductId(productId);
+			if (!inventory.isPresent() || productRepository.adjustInventoryAtLeastZero(productId, step) == 0) {
+				LOGGER.warn("Dropping adjustment of {} items for removed product {}.", delta, productId);
+				return;
+			}
+			LOGGER.warn("Inventory of product {} changed concurrently, {} items oversold.", productId,
+					-(inventory.get() + (long) step));
+		}
+	}
+
+	/**
+	 * Re-bases the in-memory view of every tracked product on its inventory in the database.
+	 */
+	private void resync() {
+		List<String> productIds = new ArrayList<>(skus.keySet());
+		if (productIds.isEmpty()) {
+			return;
+		}
+		journalLock.writeLock().lock();
+		try {
+			Map<String, Integer> inventories = new HashMap<>();
+			for (Object[] row : productRepository.findInventories(productIds)) {
+				inventories.put((String) row[0], (Integer) row[1]);
+			}
+			for (String productId : productIds) {
+				Integer inventory = inventories.get(productId);
+				if (inventory == null) {
+					skus.remove(productId);
+				} else {
+					skus.get(productId).resync(inventory);
+				}
+			}
+		} finally {
+			journalLock.writeLock().unlock();
+		}
+	}
+
+	private HotSku load(String productId) {
+		return productRepository.findInventoryByProductId(productId).map(HotSku::new)
+				.orElseThrow(() -> new ProductNotFoundException("Product with id:" + productId + " not found."));
+	}
+
+	/**
+	 * In-memory inventory of a product: the reservation limit and the adjustments not flushed yet.
+	 */
+	private static final class HotSku {
+
+		private final AtomicLong available;
+
+		private final LongAdder pending = new LongAdder();
+
+		private HotSku(int inventory) {
+			this.available = new AtomicLong(inventory);
+		}
+
+		private long reserve(String productId, int delta) {
+			while (true) {
+				long current = available.get();
+				long next = current + delta;
+				if (next < 0) {
+					throw new InsufficientInventoryException(
+							"Product with id:" + productId + " has " + current + " items, cannot remove " + -delta + ".");
+				}
+				if (next > Integer.MAX_VALUE) {
+					throw new BadRequestException(
+							"Product with id:" + productId + " has " + current + " items, cannot add " + delta + ".");
+				}
+				if (available.compareAndSet(current, next)) {
+					return next;
+				}
+			}
+		}
+
+		/**
+		 * Only called with no adjustment in progress, the pending counter then holds every reservation not flushed.
+		 */
+		private void resync(int inventory) {
+			available.set(inventory + pending.sum());
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.store.electronicsstore.service.mapper;
+
+/**
+ * Conversion between an entity and its DTO, written out per type pair instead of resolved by reflection.
+ *
+ * @param <E> entity type.
+ * @param <D> DTO type.
+ */
+public interface EntityMapper<E, D> {
+
+	D toDto(E entity);
+
+	E toEntity(D dto);
+}
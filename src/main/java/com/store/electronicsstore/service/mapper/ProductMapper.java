@@ -0,0 +1,62 @@
+package com.store.electronicsstore.service.mapper;
+
+import org.modelmapper.ModelMapper;
+import org.modelmapper.PropertyMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.store.electronicsstore.domain.Product;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Copies {@link Product} and {@link ProductDto} field by field. When a {@link PropertyMap} for one of the two
+ * directions is registered with the {@link ModelMapper}, that direction keeps going through the {@link ModelMapper}
+ * so the customization still applies.
+ */
+@Component
+public class ProductMapper implements EntityMapper<Product, ProductDto> {
+
+	private final ModelMapper modelMapper;
+
+	private final boolean customToDto;
+
+	private final boolean customToEntity;
+
+	@Autowired
+	public ProductMapper(ModelMapper modelMapper) {
+		this.modelMapper = modelMapper;
+		this.customToDto = modelMapper.getTypeMap(Product.class, ProductDto.class) != null;
+		this.customToEntity = modelMapper.getTypeMap(ProductDto.class, Product.class) != null;
+	}
+
+	@Override
+	public ProductDto toDto(Product product) {
+		if (customToDto) {
+			return modelMapper.map(product, ProductDto.class);
+		}
+		ProductDto productDto = new ProductDto();
+		productDto.setId(product.getId());
+		productDto.setProductId(product.getProductId());
+		productDto.setName(product.getName());
+		productDto.setManufacturer(product.getManufacturer());
+		productDto.setPrice(product.getPrice());
+		productDto.setInventory(product.getInventory());
+		productDto.setVersion(product.getVersion());
+		return productDto;
+	}
+
+	@Override
+	public Product toEntity(ProductDto productDto) {
+		if (customToEntity) {
+			return modelMapper.map(productDto, Product.class);
+		}
+		Product product = new Product();
+		product.setId(productDto.getId());
+		product.setProductId(productDto.getProductId());
+		product.setName(productDto.getName());
+		product.setManufacturer(productDto.getManufacturer());
+		product.setPrice(productDto.getPrice());
+		product.setInventory(productDto.getInventory());
+		return product;
+	}
+}
@@ -0,0 +1,432 @@
+package com.store.electronicsstore.service.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+
+/**
+ * In-process inverted index over the name and manufacturer of every product, answering free-text queries such as
+ * {@code samsung 55 oled}. Each product is given a small int document number and each token maps to a sorted int
+ * array of the documents containing it. A query merges the posting lists of its tokens and ranks documents by the
+ * summed inverse document frequency of the tokens they contain, so a rare model number outweighs a common brand.
+ * <p>
+ * The index is built from the database at startup and then follows {@link ProductChangeFeed}, which covers the
+ * writes of every node sharing the database: writes of this node show up right after they commit, those of other
+ * nodes once the feed is checked for them. Changes are applied in feed order, which is commit order per product,
+ * and a change at or before the position already applied is skipped, so a change read again never takes a product
+ * back to an older state.
+ */
+@Component
+public class ProductTextIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductTextIndex.class);
+
+	private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final String[] NO_TOKENS = new String[0];
+
+	private final StoreProperties.Search settings;
+
+	private final StoreProperties.Feed feedSettings;
+
+	private final ProductRepository productRepository;
+
+	private final ProductChangeFeed productChangeFeed;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	private final Map<String, Integer> documents = new HashMap<>();
+
+	/**
+	 * Product id per document number, null for a free document number.
+	 */
+	private final List<String> productIds = new ArrayList<>();
+
+	/**
+	 * Tokens per document number, needed to take a document out of its posting lists again.
+	 */
+	private final List<String[]> documentTokens = new ArrayList<>();
+
+	private int[] freeDocuments = new int[8];
+
+	private int freeCount;
+
+	/**
+	 * Position of the last change applied, only changes after it are applied.
+	 */
+	private long position;
+
+	private volatile boolean running;
+
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public ProductTextIndex(StoreProperties storeProperties, ProductRepository productRepository,
+			ProductChangeFeed productChangeFeed, PlatformTransactionManager transactionManager) {
+		this.settings = storeProperties.getSearch();
+		this.feedSettings = storeProperties.getFeed();
+		this.productRepository = productRepository;
+		this.productChangeFeed = productChangeFeed;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	public boolean isEnabled() {
+		return settings.isEnabled();
+	}
+
+	/**
+	 * Indexes the whole catalog and starts following the change feed. The feed is followed from a position taken
+	 * before the catalog is read, so no change committing meanwhile is missed.
+	 */
+	@PostConstruct
+	public void start() {
+		if (!isEnabled()) {
+			return;
+		}
+		long started = System.nanoTime();
+		long after = productChangeFeed.recentOffset();
+		transactionTemplate.execute(status -> {
+			try (Stream<Object[]> rows = productRepository.streamSearchableFields()) {
+				rows.forEach(row -> put((String) row[0], (String) row[1], (String) row[2]));
+			}
+			return null;
+		});
+		LOGGER.info("Indexed {} products for full-text search in {} ms.", size(),
+				(System.nanoTime() - started) / 1_000_000);
+
+		synchronized (this) {
+			position = after;
+		}
+		running = true;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "product-text-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.execute(() -> follow(after));
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Applies changes of the feed in feed order, skipping those at or before the position already applied.
+	 *
+	 * @param changes
+	 */
+	synchronized void apply(List<ProductChangeDto> changes) {
+		for (ProductChangeDto change : changes) {
+			if (change.getSequence() <= position) {
+				continue;
+			}
+			switch (change.getType()) {
+			case CREATED:
+			case UPDATED:
+				put(change.getProductId(), change.getName(), change.getManufacturer());
+				break;
+			case REMOVED:
+				delete(change.getProductId());
+				break;
+			default:
+				// inventory changes leave the indexed fields alone
+			}
+			position = change.getSequence();
+		}
+	}
+
+	/**
+	 * Finds the products best matching a free-text query. A product matches when its name or manufacturer
+	 * contains at least one token of the query.
+	 *
+	 * @param query
+	 * @param limit maximum number of product ids returned.
+	 * @return product ids, best match first.
+	 */
+	public List<String> search(String query, int limit) {
+		String[] queryTokens = tokenize(query);
+		if (queryTokens.length == 0 || limit <= 0) {
+			return Collections.emptyList();
+		}
+		lock.readLock().lock();
+		try {
+			Hits hits = new Hits(0);
+			double documentCount = documents.size();
+			for (String token : queryTokens) {
+				Postings tokenPostings = postings.get(token);
+				if (tokenPostings != null) {
+					hits = hits.merge(tokenPostings, (float) Math.log(1 + documentCount / tokenPostings.size));
+				}
+			}
+			return hits.top(limit, productIds);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of indexed products.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void put(String productId, String name, String manufacturer) {
+		String[] tokens = tokenize(StringUtils.join(new String[] { name, manufacturer }, ' '));
+		lock.writeLock().lock();
+		try {
+			Integer existing = documents.get(productId);
+			int document;
+			if (existing != null) {
+				document = existing;
+				unlink(document);
+			} else {
+				document = allocate(productId);
+			}
+			for (int i = 0; i < tokens.length; i++) {
+				Postings tokenPostings = postings.get(tokens[i]);
+				if (tokenPostings == null) {
+					tokenPostings = new Postings(tokens[i]);
+					postings.put(tokens[i], tokenPostings);
+				} else {
+					// share the key instance instead of keeping one copy of the token per product
+					tokens[i] = tokenPostings.token;
+				}
+				tokenPostings.add(document);
+			}
+			documentTokens.set(document, tokens);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void delete(String productId) {
+		lock.writeLock().lock();
+		try {
+			Integer document = documents.remove(productId);
+			if (document == null) {
+				return;
+			}
+			unlink(document);
+			productIds.set(document, null);
+			if (freeCount == freeDocuments.length) {
+				freeDocuments = Arrays.copyOf(freeDocuments, freeCount * 2);
+			}
+			freeDocuments[freeCount++] = document;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private int allocate(String productId) {
+		int document;
+		if (freeCount > 0) {
+			document = freeDocuments[--freeCount];
+			productIds.set(document, productId);
+		} else {
+			document = productIds.size();
+			productIds.add(productId);
+			documentTokens.add(NO_TOKENS);
+		}
+		documents.put(productId, document);
+		return document;
+	}
+
+	private void unlink(int document) {
+		for (String token : documentTokens.get(document)) {
+			Postings tokenPostings = postings.get(token);
+			tokenPostings.remove(document);
+			if (tokenPostings.size == 0) {
+				postings.remove(token);
+			}
+		}
+		documentTokens.set(document, NO_TOKENS);
+	}
+
+	/**
+	 * Splits text into distinct lower case tokens of letters and digits, at most the configured number per text.
+	 */
+	private String[] tokenize(String text) {
+		if (text == null) {
+			return NO_TOKENS;
+		}
+		Set<String> tokens = new LinkedHashSet<>();
+		for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+				if (tokens.size() == settings.getMaxTokensPerProduct()) {
+					break;
+				}
+			}
+		}
+		return tokens.toArray(NO_TOKENS);
+	}
+
+	/**
+	 * Waits for the changes following a position of the feed, applies them and continues after them.
+	 */
+	private void follow(long after) {
+		if (!running) {
+			return;
+		}
+		try {
+			productChangeFeed.poll(after, feedSettings.getMaxBatchSize(), feedSettings.getMaxWait())
+					.thenAcceptAsync(batch -> {
+						apply(batch.getChanges());
+						follow(batch.getNextOffset());
+					}, scheduler);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Reading product changes for the search index failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(() -> follow(after), RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Sorted document numbers containing a token.
+	 */
+	private static final class Postings {
+
+		private final String token;
+
+		private int[] documents = new int[2];
+
+		private int size;
+
+		private Postings(String token) {
+			this.token = token;
+		}
+
+		private void add(int document) {
+			int index = Arrays.binarySearch(documents, 0, size, document);
+			if (index >= 0) {
+				return;
+			}
+			index = -index - 1;
+			if (size == documents.length) {
+				documents = Arrays.copyOf(documents, size * 2);
+			}
+			System.arraycopy(documents, index, documents, index + 1, size - index);
+			documents[index] = document;
+			size++;
+		}
+
+		private void remove(int document) {
+			int index = Arrays.binarySearch(documents, 0, size, document);
+			if (index >= 0) {
+				System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+				size--;
+			}
+		}
+	}
+
+	/**
+	 * Matching document numbers in ascending order with their scores.
+	 */
+	private static final class Hits {
+
+		private final int[] documents;
+
+		private final float[] scores;
+
+		private int size;
+
+		private Hits(int capacity) {
+			this.documents = new int[capacity];
+			this.scores = new float[capacity];
+		}
+
+		/**
+		 * Merges the documents of a posting list into these hits, adding the weight to the score of each.
+		 */
+		private Hits merge(Postings postings, float weight) {
+			Hits merged = new Hits(size + postings.size);
+			int i = 0;
+			int j = 0;
+			while (i < size || j < postings.size) {
+				int document;
+				float score;
+				if (j == postings.size || (i < size && documents[i] < postings.documents[j])) {
+					document = documents[i];
+					score = scores[i++];
+				} else if (i == size || postings.documents[j] < documents[i]) {
+					document = postings.documents[j++];
+					score = weight;
+				} else {
+					document = documents[i];
+					score = scores[i++] + weight;
+					j++;
+				}
+				merged.documents[merged.size] = document;
+				merged.scores[merged.size++] = score;
+			}
+			return merged;
+		}
+
+		/**
+		 * Selects the best scored documents, lower document numbers first on equal scores.
+		 */
+		private List<String> top(int limit, List<String> productIds) {
+			PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, Math.max(size, 1)) + 1,
+					(a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b])
+							: Integer.compare(documents[b], documents[a]));
+			for (int i = 0; i < size; i++) {
+				best.add(i);
+				if (best.size() > limit) {
+					best.poll();
+				}
+			}
+			String[] ranked = new String[best.size()];
+			for (int i = ranked.length - 1; i >= 0; i--) {
+				ranked[i] = productIds.get(documents[best.poll()]);
+			}
+			return Arrays.asList(ranked);
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package com.store.electronicsstore.service.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.Product;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+import com.store.electronicsstore.service.feed.ProductChangeOutbox;
+import com.store.electronicsstore.service.mapper.ProductMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Copy of the catalog in a memory-mapped file on local disk, which a restarted node maps in milliseconds and serves
+ * product lookups from before its caches are warm. Products are decoded per lookup, the catalog itself never lives
+ * on the heap.
+ * <p>
+ * The file is immutable. Products changed since it was written, as reported by {@link ProductChangeFeed} for every
+ * node and right after the commit for this node, are left to the database until the snapshot is rewritten. A rewrite
+ * copies the unchanged records as they are and reads only the changed products. After a restart the feed is replayed
+ * from the position stored in the file before any lookup is served; a file older than the feed retention is rebuilt
+ * from the database instead.
+ */
+@Component
+public class ProductSnapshot {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductSnapshot.class);
+
+	private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+	/**
+	 * Upper bound of the number of ids bound into a single IN clause.
+	 */
+	private static final int MAX_IDS_PER_QUERY = 1000;
+
+	private final StoreProperties.Snapshot settings;
+
+	private final StoreProperties.Feed feedSettings;
+
+	private final ProductChangeFeed productChangeFeed;
+
+	private final ProductRepository productRepository;
+
+	private final ProductMapper productMapper;
+
+	private final EntityManager entityManager;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Path path;
+
+	/**
+	 * Products changed since the snapshot was written, with the stamp of their latest change.
+	 */
+	private final Map<String, Long> changed = new ConcurrentHashMap<>();
+
+	private final AtomicLong stamps = new AtomicLong();
+
+	private final AtomicBoolean rewriteScheduled = new AtomicBoolean();
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	private volatile ProductSnapshotFile file;
+
+	/**
+	 * Whether all changes up to the feed position followed are marked, lookups are only served once they are.
+	 */
+	private volatile boolean caughtUp;
+
+	private volatile long followed;
+
+	private volatile boolean running;
+
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public ProductSnapshot(StoreProperties storeProperties, ProductChangeFeed productChangeFeed,
+			ProductChangeOutbox productChangeOutbox, ProductRepository productRepository,
+			ProductMapper productMapper, EntityManager entityManager, PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry) {
+		this.settings = storeProperties.getSnapshot();
+		this.feedSettings = storeProperties.getFeed();
+		this.productChangeFeed = productChangeFeed;
+		this.productRepository = productRepository;
+		this.productMapper = productMapper;
+		this.entityManager = entityManager;
+		// not read-only, which keeps the reads on the primary: a replica lagging behind the change feed would leave
+		// outdated products in the snapshot
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.path = Paths.get(settings.getPath());
+		if (settings.isEnabled()) {
+			productChangeOutbox.addListener(changes -> changes.stream().map(ProductChangeEvent::getProductId)
+					.forEach(this::markChanged));
+		}
+		Gauge.builder("store.snapshot.products", this, snapshot -> snapshot.file == null ? 0 : snapshot.file.size())
+				.description("Products in the mapped catalog snapshot")
+				.register(meterRegistry);
+		Gauge.builder("store.snapshot.changed", changed, Map::size)
+				.description("Products changed since the catalog snapshot was written")
+				.register(meterRegistry);
+		this.hits = Counter.builder("store.snapshot.lookups")
+				.description("Product lookups against the catalog snapshot")
+				.tag("result", "hit")
+				.register(meterRegistry);
+		this.misses = Counter.builder("store.snapshot.lookups")
+				.description("Product lookups against the catalog snapshot")
+				.tag("result", "miss")
+				.register(meterRegistry);
+	}
+
+	public boolean isEnabled() {
+		return settings.isEnabled();
+	}
+
+	/**
+	 * Maps the snapshot left by the previous run, or builds one in the background when there is none.
+	 */
+	@PostConstruct
+	public void start() {
+		if (!isEnabled()) {
+			return;
+		}
+		running = true;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "product-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long started = System.nanoTime();
+		try {
+			ProductSnapshotFile existing = ProductSnapshotFile.open(path);
+			if (existing.getWrittenAt().isBefore(Instant.now().minus(feedSettings.getRetention()))) {
+				LOGGER.info("Product snapshot written at {} is older than the change feed, rebuilding it.",
+						existing.getWrittenAt());
+				existing.close();
+			} else {
+				file = existing;
+				LOGGER.info("Mapped product snapshot of {} products written at {} in {} ms.", existing.size(),
+						existing.getWrittenAt(), (System.nanoTime() - started) / 1_000_000);
+			}
+		} catch (NoSuchFileException e) {
+			LOGGER.info("No product snapshot at {}, building it.", path);
+		} catch (IOException e) {
+			LOGGER.warn("Product snapshot at {} cannot be used, rebuilding it: {}", path, e.getMessage());
+		}
+		scheduler.execute(this::startFollowing);
+		long refreshInterval = settings.getRefreshInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::rewriteIfChanged, refreshInterval, refreshInterval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (running) {
+			running = false;
+			scheduler.shutdownNow();
+			if (file != null) {
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * Looks a product up in the snapshot.
+	 *
+	 * @param productId
+	 * @return the product, null when the snapshot cannot tell: it is not ready, the product changed since it was
+	 *         written or is not in it. Only the database tells whether a product exists.
+	 */
+	public ProductDto find(String productId) {
+		ProductSnapshotFile current = file;
+		// a snapshot replaced meanwhile may be closed already, the database answers then
+		if (current == null || !caughtUp || changed.containsKey(productId) || !current.acquire()) {
+			return null;
+		}
+		try {
+			ProductDto product = current.find(productId);
+			(product == null ? misses : hits).increment();
+			return product;
+		} finally {
+			current.release();
+		}
+	}
+
+	private void markChanged(String productId) {
+		changed.put(productId, stamps.incrementAndGet());
+		if (running && changed.size() >= settings.getMaxChangedProducts()
+				&& rewriteScheduled.compareAndSet(false, true)) {
+			scheduler.execute(this::rewriteIfChanged);
+		}
+	}
+
+	private void startFollowing() {
+		long after;
+		try {
+			after = file != null ? file.getFeedOffset() : productChangeFeed.recentOffset();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Finding the product change feed position failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(this::startFollowing, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+			return;
+		}
+		followed = after;
+		if (file == null) {
+			rewrite();
+		}
+		follow(after);
+	}
+
+	/**
+	 * Marks the products of the changes following a position of the feed and continues after them.
+	 */
+	private void follow(long after) {
+		if (!running) {
+			return;
+		}
+		try {
+			CompletableFuture<ProductChangeBatchDto> changes = productChangeFeed.poll(after,
+					feedSettings.getMaxBatchSize(), feedSettings.getMaxWait());
+			if (!changes.isDone()) {
+				// waiting means there is nothing left to read
+				catchUp();
+			}
+			changes.thenAcceptAsync(batch -> {
+				apply(batch);
+				follow(batch.getNextOffset());
+			}, scheduler);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Reading product changes for the snapshot failed, retrying in {}.", RETRY_DELAY, e);
+			scheduler.schedule(() -> follow(after), RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void apply(ProductChangeBatchDto batch) {
+		batch.getChanges().forEach(change -> markChanged(change.getProductId()));
+		followed = batch.getNextOffset();
+		if (batch.getChanges().size() < feedSettings.getMaxBatchSize()) {
+			catchUp();
+		}
+	}
+
+	private void catchUp() {
+		if (!caughtUp) {
+			caughtUp = true;
+			LOGGER.info("Product snapshot caught up with the change feed, {} products changed since it was written.",
+					changed.size());
+		}
+	}
+
+	private void rewriteIfChanged() {
+		rewriteScheduled.set(false);
+		if (!changed.isEmpty() || file == null) {
+			rewrite();
+		}
+	}
+
+	/**
+	 * Writes a new snapshot next to the current one and replaces it: the unchanged records of the current snapshot
+	 * are copied, the changed products read from the database. Without a current snapshot the whole catalog is read.
+	 * The current snapshot is closed once replaced.
+	 */
+	private void rewrite() {
+		long started = System.nanoTime();
+		Map<String, Long> rewritten = new HashMap<>(changed);
+		long feedOffset = followed;
+		ProductSnapshotFile previous = file;
+		if (previous != null && !previous.acquire()) {
+			// closed by stop()
+			return;
+		}
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			int size;
+			try (ProductSnapshotFile.Writer writer = new ProductSnapshotFile.Writer(temporary)) {
+				if (previous == null) {
+					writeCatalog(writer);
+				} else {
+					previous.forEach((productId, position) -> {
+						if (!rewritten.containsKey(productId)) {
+							writer.copy(previous, productId, position);
+						}
+					});
+					transactionTemplate.execute(status -> {
+						writeProducts(writer, new ArrayList<>(rewritten.keySet()));
+						return null;
+					});
+				}
+				writer.finish(feedOffset, Instant.now());
+				size = writer.size();
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			file = ProductSnapshotFile.open(path);
+			if (previous != null) {
+				previous.close();
+			}
+			// products changed again meanwhile got a newer stamp and stay marked
+			rewritten.forEach(changed::remove);
+			LOGGER.info("Wrote product snapshot of {} products, {} of them read from the database, in {} ms.", size,
+					previous == null ? size : rewritten.size(), (System.nanoTime() - started) / 1_000_000);
+		} catch (IOException | RuntimeException e) {
+			Throwable cause = e instanceof SnapshotWriteException ? e.getCause() : e;
+			LOGGER.error("Writing the product snapshot failed, retrying with the next refresh.", cause);
+		} finally {
+			if (previous != null) {
+				previous.release();
+			}
+		}
+	}
+
+	private void writeCatalog(ProductSnapshotFile.Writer writer) {
+		transactionTemplate.execute(status -> {
+			try (Stream<Product> products = productRepository.streamAll()) {
+				products.forEach(product -> {
+					add(writer, productMapper.toDto(product));
+					entityManager.detach(product);
+				});
+			}
+			return null;
+		});
+	}
+
+	private void writeProducts(ProductSnapshotFile.Writer writer, List<String> productIds) {
+		for (int from = 0; from < productIds.size(); from += MAX_IDS_PER_QUERY) {
+			List<Product> products = productRepository.findByProductIdIn(
+					productIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, productIds.size())));
+			for (Product product : products) {
+				add(writer, productMapper.toDto(product));
+				entityManager.detach(product);
+			}
+		}
+	}
+
+	private static void add(ProductSnapshotFile.Writer writer, ProductDto product) {
+		try {
+			writer.add(product);
+		} catch (IOException e) {
+			throw new SnapshotWriteException(e);
+		}
+	}
+
+	/**
+	 * Carries an {@link IOException} of the writer out of a transaction callback.
+	 */
+	private static final class SnapshotWriteException extends RuntimeException {
+
+		private SnapshotWriteException(IOException cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,442 @@
+package com.store.electronicsstore.service.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Catalog snapshot file, read through a memory mapping. Layout, numbers big-endian:
+ * <pre>
+ * header   magic, format version, feed offset, written at (epoch millis), record count, index slots, index position
+ * records  per product: product id, id, version, price, inventory, name, manufacturer
+ * index    open-addressing hash table of fixed-width slots: hash of the product id and position of its record
+ * </pre>
+ * Strings are stored as their UTF-8 length in a short, -1 for null, followed by the bytes. Opening a file only maps
+ * it, a lookup probes the index and decodes the one record it finds. The mapping is not part of the heap and stays
+ * valid after the file has been replaced.
+ * <p>
+ * Readers hold a reference while they use the mapping. Once the snapshot is closed and the last reader is done it is
+ * unmapped right away, rather than whenever the garbage collector gets to the buffer, which would keep replaced
+ * files on disk and in the address space in between.
+ */
+final class ProductSnapshotFile implements Closeable {
+
+	private static final int MAGIC = 0x50534e50;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_SIZE = 40;
+
+	private static final int SLOT_SIZE = 8;
+
+	/**
+	 * Upper bound of the records section, leaves room for the index within the 2 GB a single mapping can cover.
+	 */
+	private static final int MAX_RECORDS_SIZE = 1 << 30;
+
+	private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * References to the mapping: one of the owner until the snapshot is closed, one per reader.
+	 */
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	private final long feedOffset;
+
+	private final Instant writtenAt;
+
+	private final int size;
+
+	private final int slots;
+
+	private final int indexPosition;
+
+	private ProductSnapshotFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Not a product snapshot of format version " + FORMAT_VERSION);
+		}
+		this.feedOffset = buffer.getLong(8);
+		this.writtenAt = Instant.ofEpochMilli(buffer.getLong(16));
+		this.size = buffer.getInt(24);
+		this.slots = buffer.getInt(28);
+		this.indexPosition = buffer.getInt(32);
+		if (Integer.bitCount(slots) != 1 || (long) indexPosition + (long) slots * SLOT_SIZE != buffer.capacity()) {
+			throw new IOException("Product snapshot is truncated");
+		}
+	}
+
+	/**
+	 * Maps a snapshot file.
+	 *
+	 * @param file
+	 * @return the mapped snapshot.
+	 * @throws IOException when the file cannot be read or is not a complete snapshot.
+	 */
+	static ProductSnapshotFile open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Product snapshot is too large to be mapped");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			try {
+				return new ProductSnapshotFile(buffer);
+			} catch (IOException e) {
+				UNMAPPER.accept(buffer);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Takes a reference to the mapping, to be given back with {@link #release()} once done with the snapshot.
+	 *
+	 * @return false when the snapshot is closed and must not be read anymore.
+	 */
+	boolean acquire() {
+		while (true) {
+			int current = references.get();
+			if (current == 0) {
+				return false;
+			}
+			if (references.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	void release() {
+		if (references.decrementAndGet() == 0) {
+			UNMAPPER.accept(buffer);
+		}
+	}
+
+	/**
+	 * Gives back the reference of the owner, the mapping goes once no reader holds one anymore.
+	 */
+	@Override
+	public void close() {
+		release();
+	}
+
+	/**
+	 * Position of the change feed the snapshot was written at: it holds every change up to it.
+	 */
+	long getFeedOffset() {
+		return feedOffset;
+	}
+
+	Instant getWrittenAt() {
+		return writtenAt;
+	}
+
+	/**
+	 * @return number of products in the snapshot.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Looks a product up.
+	 *
+	 * @param productId
+	 * @return the product, null when it is not in the snapshot.
+	 */
+	ProductDto find(String productId) {
+		byte[] key = productId.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(productId);
+		int mask = slots - 1;
+		// at most half of the slots are taken, the probing ends at a free one
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int slotPosition = indexPosition + slot * SLOT_SIZE;
+			int position = buffer.getInt(slotPosition + 4);
+			if (position == 0) {
+				return null;
+			}
+			if (buffer.getInt(slotPosition) == hash && keyEquals(position, key)) {
+				return decode(position);
+			}
+		}
+	}
+
+	/**
+	 * Visits the records in file order, without decoding more than their product id.
+	 *
+	 * @param visitor
+	 * @throws IOException
+	 */
+	void forEach(RecordVisitor visitor) throws IOException {
+		for (int position = HEADER_SIZE; position < indexPosition; position += recordLength(position)) {
+			visitor.visit(readString(position), position);
+		}
+	}
+
+	private boolean keyEquals(int position, byte[] key) {
+		if (buffer.getShort(position) != key.length) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (buffer.get(position + 2 + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private ProductDto decode(int position) {
+		int at = position;
+		String productId = readString(at);
+		at += stringLength(at);
+		long id = buffer.getLong(at);
+		long version = buffer.getLong(at + 8);
+		float price = buffer.getFloat(at + 16);
+		int inventory = buffer.getInt(at + 20);
+		at += 24;
+		String name = readString(at);
+		at += stringLength(at);
+		String manufacturer = readString(at);
+		return ProductDto.builder()
+				.id(id)
+				.version(version)
+				.productId(productId)
+				.name(name)
+				.manufacturer(manufacturer)
+				.price(price)
+				.inventory(inventory)
+				.build();
+	}
+
+	private int recordLength(int position) {
+		int at = position + stringLength(position) + 24;
+		at += stringLength(at);
+		at += stringLength(at);
+		return at - position;
+	}
+
+	private int stringLength(int position) {
+		return 2 + Math.max(0, buffer.getShort(position));
+	}
+
+	private String readString(int position) {
+		int length = buffer.getShort(position);
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(position + 2 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int hash(String productId) {
+		int hash = productId.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Finds how to unmap a buffer explicitly: through {@code Unsafe.invokeCleaner} from Java 9 on, through the cleaner
+	 * of the buffer on Java 8. Without either the mapping is left to the garbage collector.
+	 */
+	private static Consumer<ByteBuffer> unmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			return buffer -> invoke(invokeCleaner, unsafe, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// before Java 9
+		}
+		try {
+			Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			return buffer -> invoke(clean, invoke(cleaner, buffer));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return buffer -> {
+				// left to the garbage collector
+			};
+		}
+	}
+
+	private static Object invoke(Method method, Object target, Object... arguments) {
+		try {
+			return method.invoke(target, arguments);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot unmap product snapshot", e);
+		}
+	}
+
+	/**
+	 * Receives the records of a snapshot.
+	 */
+	interface RecordVisitor {
+
+		void visit(String productId, int position) throws IOException;
+	}
+
+	/**
+	 * Writes a new snapshot file. Records are streamed to disk as they are added, only the hash and position per
+	 * record are kept in memory until the index is written.
+	 */
+	static final class Writer implements Closeable {
+
+		private final Path file;
+
+		private final DataOutputStream out;
+
+		private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+
+		private final DataOutputStream record = new DataOutputStream(recordBuffer);
+
+		private int[] hashes = new int[1024];
+
+		private int[] positions = new int[1024];
+
+		private int size;
+
+		Writer(Path file) throws IOException {
+			this.file = file;
+			this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+			out.write(new byte[HEADER_SIZE]);
+		}
+
+		/**
+		 * Appends a product.
+		 *
+		 * @param product
+		 * @return false when a value of the product is too long to be stored, it is left out then.
+		 * @throws IOException
+		 */
+		boolean add(ProductDto product) throws IOException {
+			if (!fits(product.getProductId()) || !fits(product.getName()) || !fits(product.getManufacturer())) {
+				return false;
+			}
+			recordBuffer.reset();
+			writeString(product.getProductId());
+			record.writeLong(product.getId());
+			record.writeLong(product.getVersion());
+			record.writeFloat(product.getPrice());
+			record.writeInt(product.getInventory());
+			writeString(product.getName());
+			writeString(product.getManufacturer());
+			append(product.getProductId(), recordBuffer.toByteArray());
+			return true;
+		}
+
+		/**
+		 * Appends a record of another snapshot as it is.
+		 *
+		 * @param source
+		 * @param productId
+		 * @param position  position of the record in the source.
+		 * @throws IOException
+		 */
+		void copy(ProductSnapshotFile source, String productId, int position) throws IOException {
+			ByteBuffer bytes = source.buffer.duplicate();
+			bytes.position(position);
+			byte[] copied = new byte[source.recordLength(position)];
+			bytes.get(copied);
+			append(productId, copied);
+		}
+
+		/**
+		 * Writes index and header and forces the file to disk.
+		 *
+		 * @param feedOffset position of the change feed the snapshot holds all changes of.
+		 * @param writtenAt
+		 * @throws IOException
+		 */
+		void finish(long feedOffset, Instant writtenAt) throws IOException {
+			int slots = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+			int indexPosition = out.size();
+			int[] index = new int[slots * 2];
+			for (int i = 0; i < size; i++) {
+				int slot = hashes[i] & (slots - 1);
+				while (index[slot * 2 + 1] != 0) {
+					slot = (slot + 1) & (slots - 1);
+				}
+				index[slot * 2] = hashes[i];
+				index[slot * 2 + 1] = positions[i];
+			}
+			for (int value : index) {
+				out.writeInt(value);
+			}
+			out.flush();
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(feedOffset).putLong(writtenAt.toEpochMilli())
+						.putInt(size).putInt(slots).putInt(indexPosition).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(false);
+			}
+		}
+
+		/**
+		 * @return number of products added.
+		 */
+		int size() {
+			return size;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				record.writeShort(-1);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			record.writeShort(bytes.length);
+			record.write(bytes);
+		}
+
+		private static boolean fits(String value) {
+			// a UTF-8 encoded char takes at most 3 bytes
+			return value == null || value.length() * 3 <= Short.MAX_VALUE
+					|| value.getBytes(StandardCharsets.UTF_8).length <= Short.MAX_VALUE;
+		}
+
+		private void append(String productId, byte[] bytes) throws IOException {
+			int position = out.size();
+			if (position + bytes.length > MAX_RECORDS_SIZE) {
+				throw new IOException("Catalog is too large for a product snapshot");
+			}
+			if (size == hashes.length) {
+				hashes = Arrays.copyOf(hashes, size * 2);
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+			hashes[size] = hash(productId);
+			positions[size] = position;
+			size++;
+			out.write(bytes);
+		}
+	}
+}
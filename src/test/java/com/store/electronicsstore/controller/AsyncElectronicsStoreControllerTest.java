@@ -0,0 +1,120 @@
+package com.store.electronicsstore.controller;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.exceptions.ProductNotFoundException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "store.http.async.enabled=true")
+public class AsyncElectronicsStoreControllerTest {
+    private final String productId = "product12";
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @MockBean
+    private ProductService productService;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void testOnlyAsyncControllerIsRegistered() {
+        //then
+        assertTrue(webApplicationContext.getBeansOfType(ElectronicsStoreController.class).isEmpty());
+    }
+
+    @Test
+    public void testGetProductById() throws Exception {
+        //given
+        ProductDto productDto = ProductDto.builder().productId(productId).name("name").version(3).build();
+        given(productService.getProductRevision(productId)).willReturn(productDto.getRevision());
+        given(productService.getProductById(productId)).willReturn(productDto);
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/v1/product/" + productId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + productDto.getRevision() + "\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.productId").value(productId));
+    }
+
+    @Test
+    public void testGetProductById_WhenProductDoesNotExist_ThenNotFound() throws Exception {
+        //given
+        given(productService.getProductRevision(productId))
+                .willThrow(new ProductNotFoundException("Product with id:" + productId + " not found."));
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/v1/product/" + productId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testAddNewProduct_KeepsResponseStatus() throws Exception {
+        //given
+        ProductDto productDto = ProductDto.builder().productId(productId).name("name").price(1).inventory(1).build();
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/v1/addNewProduct")
+                .content(new ObjectMapper().writeValueAsBytes(productDto))
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    public void testRemoveProduct_WhenProductDoesNotExist_ThenNotFound() throws Exception {
+        //given
+        given(productService.removeProduct(productId)).willReturn(false);
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.delete("/v1/product/" + productId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+}
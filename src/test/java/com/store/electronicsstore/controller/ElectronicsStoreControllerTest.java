@@ -1,12 +1,18 @@
 package com.store.electronicsstore.controller;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -19,13 +25,26 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.BulkDeleteResultDto;
+import com.store.electronicsstore.service.dto.BulkProductItemResultDto;
+import com.store.electronicsstore.service.dto.BulkProductItemResultDto.Status;
+import com.store.electronicsstore.service.dto.BulkProductResultDto;
+import com.store.electronicsstore.service.dto.CacheStatsDto;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
 import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.dto.ProductPageDto;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria.NameMatch;
+import com.store.electronicsstore.service.dto.ProductSearchResultDto;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -49,6 +68,9 @@ public class ElectronicsStoreControllerTest {
     @Autowired
     private ElectronicsStoreController electronicsStoreController;
 
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
     @MockBean
     private ProductService productService;
 
@@ -76,11 +98,33 @@ public class ElectronicsStoreControllerTest {
     }
 
 
+    @Test
+    public void testAddNewProducts() throws Exception {
+        //given
+        List<ProductDto> productDtos = Arrays.asList(createProductDto(), createProductDto());
+        given(productService.addNewProducts(any())).willReturn(BulkProductResultDto.builder()
+                .created(1).rejected(1).items(Arrays.asList(
+                        new BulkProductItemResultDto(productId, Status.CREATED, null),
+                        new BulkProductItemResultDto(productId, Status.DUPLICATE, "duplicate")))
+                .build());
+
+        // when
+        mockMvc.perform(MockMvcRequestBuilders
+                .post("/v1/addNewProducts")
+                .content(objectMapper.writeValueAsBytes(productDtos))
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].status").value("DUPLICATE"));
+    }
+
     @Test
     public void testGetProductById() throws Exception {
         // given
         String url = "/v1/product/" + productId;
         ProductDto productDto = createProductDto();
+        given(productService.getProductRevision(productId)).willReturn(productDto.getRevision());
         given(productService.getProductById(productId)).willReturn(productDto);
 
         // then
@@ -88,21 +132,169 @@ public class ElectronicsStoreControllerTest {
                 .get(url)
                 .accept(MediaType.APPLICATION_JSON))
                 .andDo(print())
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"" + productDto.getRevision() + "\""))
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=0, must-revalidate"));
+    }
+
+    @Test
+    public void testGetProductById_WithCurrentETag_ReturnsNotModifiedWithoutLoadingProduct() throws Exception {
+        // given
+        given(productService.getProductRevision(productId)).willReturn("2134-7");
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/product/" + productId)
+                .header("If-None-Match", "\"2134-7\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        verify(productService, never()).getProductById(any());
     }
 
     @Test
     public void testGetAllProducts() throws Exception {
         //given
         List<ProductDto> productDtoList = Arrays.asList(createProductDto());
-        given(productService.getAllProducts()).willReturn(productDtoList);
+        given(productService.getCatalogRevision()).willReturn("abc-1");
+        given(productService.getAllProducts(null, null)).willReturn(new ProductPageDto(productDtoList, null));
 
         mockMvc.perform(MockMvcRequestBuilders
                 .get("/v1/products")
                 .accept(MediaType.APPLICATION_JSON))
                 .andDo(print())
                 .andExpect(status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.[*].inventory").isNotEmpty());
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[*].inventory").isNotEmpty())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("X-Next-Cursor"))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"abc-1\""));
+    }
+
+    @Test
+    public void testGetAllProducts_WithCurrentETag_ReturnsNotModifiedWithoutReadingCatalog() throws Exception {
+        //given
+        given(productService.getCatalogRevision()).willReturn("abc-1");
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/products")
+                .header("If-None-Match", "\"abc-1\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+        verify(productService, never()).getAllProducts(any(), any());
+    }
+
+    @Test
+    public void testGetAllProducts_WithCursorAndLimit_ReturnsNextCursorHeader() throws Exception {
+        //given
+        List<ProductDto> productDtoList = Arrays.asList(createProductDto());
+        given(productService.getCatalogRevision()).willReturn("abc-1");
+        given(productService.getAllProducts("abc", 1)).willReturn(new ProductPageDto(productDtoList, "def"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/products")
+                .param("cursor", "abc")
+                .param("limit", "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor", "def"));
+    }
+
+    @Test
+    public void testSearchProducts() throws Exception {
+        //given
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setManufacturer(manufacturer);
+        criteria.setNameMatch(NameMatch.CONTAINS);
+        criteria.setName(name);
+        criteria.setMaxPrice(100f);
+        given(productService.searchProducts(criteria)).willReturn(
+                new ProductSearchResultDto(Arrays.asList(createProductDto()), 0, 50, false));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/products/search")
+                .param("manufacturer", manufacturer)
+                .param("name", name)
+                .param("nameMatch", "CONTAINS")
+                .param("maxPrice", "100")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.products[0].productId").value(productId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    public void testGetProductsByIds() throws Exception {
+        //given
+        given(productService.getProductsByIds(Arrays.asList(productId, "missing")))
+                .willReturn(new ProductBatchDto(Arrays.asList(createProductDto()), Arrays.asList("missing")));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/products/batch")
+                .param("productIds", productId + ",missing")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.products[0].productId").value(productId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missing[0]").value("missing"));
+    }
+
+    @Test
+    public void testGetProductsByIds_AsSmile() throws Exception {
+        //given
+        ProductBatchDto batch = new ProductBatchDto(Arrays.asList(createProductDto()), Arrays.asList("missing"));
+        given(productService.getProductsByIds(Arrays.asList(productId))).willReturn(batch);
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+
+        MvcResult result = MockMvcBuilders.webAppContextSetup(webApplicationContext).build()
+                .perform(MockMvcRequestBuilders
+                .get("/v1/products/batch")
+                .param("productIds", productId)
+                .accept(smile))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(smile))
+                .andReturn();
+
+        //then
+        ProductBatchDto decoded = new ObjectMapper(new SmileFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), ProductBatchDto.class);
+        assertEquals(productId, decoded.getProducts().get(0).getProductId());
+        assertEquals(batch.getMissing(), decoded.getMissing());
+    }
+
+    @Test
+    public void testSearchProductsByText() throws Exception {
+        //given
+        given(productService.searchProductsByText("samsung oled", 5)).willReturn(Arrays.asList(createProductDto()));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/products/search/text")
+                .param("q", "samsung oled")
+                .param("limit", "5")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].productId").value(productId));
+    }
+
+    @Test
+    public void testExportAllProducts() throws Exception {
+        //given
+        doAnswer(invocation -> {
+            Consumer<ProductDto> consumer = invocation.getArgument(0);
+            consumer.accept(createProductDto());
+            consumer.accept(createProductDto());
+            return null;
+        }).when(productService).exportAllProducts(any());
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/products/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then
+        String line = objectMapper.writeValueAsString(createProductDto());
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.content().string(line + "\n" + line + "\n"));
     }
 
     @Test
@@ -119,6 +311,21 @@ public class ElectronicsStoreControllerTest {
                 .andExpect(MockMvcResultMatchers.content().string(String.valueOf(inventory)));
     }
 
+    @Test
+    public void testGetProductCacheStats() throws Exception {
+        //given
+        given(productService.getProductCacheStats())
+                .willReturn(CacheStatsDto.builder().size(1).hitCount(3).missCount(1).hitRate(0.75).build());
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/v1/productCache/stats")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hitCount").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hitRate").value(0.75));
+    }
+
     @Test
     public void testUpdateProduct() throws Exception {
         //given
@@ -149,11 +356,24 @@ public class ElectronicsStoreControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void testAdjustInventoryOfProduct() throws Exception {
+        //given
+        String url = "/v1/adjustInventory/" + productId + "/-1";
+        given(productService.adjustInventory(productId, -1)).willReturn(inventory - 1);
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders
+                .put(url))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(String.valueOf(inventory - 1)));
+    }
+
     @Test
     public void testRemoveProduct() throws Exception {
         //given
         String url = "/v1/product/" + productId;
-        doNothing().when(productService).removeProduct((productId));
+        given(productService.removeProduct(productId)).willReturn(true);
 
         //then
         mockMvc.perform(MockMvcRequestBuilders
@@ -161,6 +381,33 @@ public class ElectronicsStoreControllerTest {
                 .contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    public void testRemoveProduct_WhenProductDoesNotExist_ThenNotFound() throws Exception {
+        //given
+        given(productService.removeProduct(productId)).willReturn(false);
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders
+                .delete("/v1/product/" + productId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testRemoveProducts() throws Exception {
+        //given
+        List<String> productIds = Arrays.asList(productId, "unknown");
+        given(productService.removeProducts(productIds)).willReturn(new BulkDeleteResultDto(2, 1));
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders
+                .post("/v1/removeProducts")
+                .content(objectMapper.writeValueAsBytes(productIds))
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.requested").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.deleted").value(1));
+    }
    
     private ProductDto createProductDto() {
         return ProductDto.builder()
@@ -0,0 +1,68 @@
+package com.store.electronicsstore.controller;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InventoryStreamControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ProductService productService;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void testStreamInventory_SendsCurrentInventoryThenUpdates() throws Exception {
+        //given
+        productService.addNewProduct(ProductDto.builder()
+                .productId("stream1").name("Soundbar").manufacturer("Sony").price(199).inventory(5).build());
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/v1/stream/inventory")
+                .param("productIds", "stream1,stream2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(result.getResponse(), "\"inventory\":5");
+        productService.updateQuantity("stream1", 3);
+
+        //then
+        String content = awaitContent(result.getResponse(), "\"inventory\":3");
+        assertTrue(content.startsWith("event:inventory\ndata:{\"productId\":\"stream1\",\"inventory\":5}"));
+        assertTrue(result.getResponse().getContentType().startsWith("text/event-stream"));
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        String content = response.getContentAsString();
+        assertTrue("Expected " + expected + " in " + content, content.contains(expected));
+        return content;
+    }
+}
@@ -0,0 +1,46 @@
+package com.store.electronicsstore.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void testNewThreadPerTaskExecutor_RunsOnNamedVirtualThreads_OrFailsBeforeJava21() throws Exception {
+        boolean virtualThreadsAvailable = hasMethod(Thread.class, "ofVirtual");
+        try {
+            //when
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-vt-");
+
+            //then
+            assertTrue(virtualThreadsAvailable);
+            String threadName = executor.submit(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+            assertEquals("test-vt-1", threadName);
+            Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(Boolean.TRUE, virtual);
+            executor.shutdown();
+        } catch (IllegalStateException e) {
+            //then
+            if (virtualThreadsAvailable) {
+                fail(e.getMessage());
+            }
+            assertTrue(e.getMessage().contains("Java 21"));
+        }
+    }
+
+    private static boolean hasMethod(Class<?> type, String name) {
+        try {
+            type.getMethod(name);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.store.electronicsstore.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.config.StoreProperties.ReplicaSelection;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ReplicaRoutingDataSourceTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replica1Connection = mock(Connection.class);
+    private final Connection replica2Connection = mock(Connection.class);
+    private final DataSource primary = dataSource(primaryConnection);
+    private final DataSource replica1 = dataSource(replica1Connection);
+    private final DataSource replica2 = dataSource(replica2Connection);
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void testGetConnection_OutsideReadOnlyTransaction_UsesPrimary() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+
+        //when
+        Connection connection = routingDataSource.getConnection();
+
+        //then
+        assertSame(primaryConnection, connection);
+        assertEquals(1.0, connections("primary"), 0.0);
+    }
+
+    @Test
+    public void testGetConnection_ReadOnlyTransaction_RotatesOverReplicas() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection first = routingDataSource.getConnection();
+        Connection second = routingDataSource.getConnection();
+        Connection third = routingDataSource.getConnection();
+
+        //then
+        assertEquals(Arrays.asList(replica1Connection, replica2Connection, replica1Connection),
+                Arrays.asList(first, second, third));
+        assertEquals(0.0, connections("primary"), 0.0);
+        assertEquals(2.0, connections("replica-1"), 0.0);
+    }
+
+    @Test
+    public void testGetConnection_LeastLoaded_PicksReplicaWithFewestActiveConnections() throws Exception {
+        //given
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", pool(replica1Connection, 5));
+        replicas.put("replica-2", pool(replica2Connection, 2));
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                ReplicaSelection.LEAST_LOADED, meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection first = routingDataSource.getConnection();
+        Connection second = routingDataSource.getConnection();
+
+        //then
+        assertSame(replica2Connection, first);
+        assertSame(replica2Connection, second);
+    }
+
+    @Test
+    public void testGetConnection_RecentlyWrittenProduct_UsesPrimary() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+        StoreProperties storeProperties = new StoreProperties();
+        storeProperties.getDatasource().getReplicas().add(new StoreProperties.Replica());
+        ReadYourWrites readYourWrites = new ReadYourWrites(storeProperties);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        readYourWrites.written(Collections.singleton("A1013"));
+        Connection written = readYourWrites.read(Collections.singleton("A1013"),
+                () -> connection(routingDataSource));
+        Connection other = readYourWrites.read(Collections.singleton("B1"), () -> connection(routingDataSource));
+
+        //then
+        assertSame(primaryConnection, written);
+        assertSame(replica1Connection, other);
+    }
+
+    @Test
+    public void testGetConnection_FailingReplica_FailsOverUntilHealthCheckSucceeds() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica2.getConnection()).thenThrow(new SQLException("Connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection duringOutage = routingDataSource.getConnection();
+        Connection whileDown = routingDataSource.getConnection();
+        doReturn(replica2Connection).when(replica2).getConnection();
+        when(replica2Connection.isValid(anyInt())).thenReturn(true);
+        routingDataSource.checkHealth();
+        Connection afterRecovery = routingDataSource.getConnection();
+
+        //then
+        assertSame(primaryConnection, duringOutage);
+        assertSame(primaryConnection, whileDown);
+        assertSame(replica2Connection, afterRecovery);
+        assertEquals(Collections.singletonList("replica-2"), routingDataSource.getAvailableReplicas());
+        assertEquals(0.0, replicaUp("replica-1"), 0.0);
+        assertEquals(1.0, replicaUp("replica-2"), 0.0);
+    }
+
+    @Test
+    public void testGetConnection_ExhaustedReplicaPool_TriesNextReplicaAndKeepsItAvailable() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+        SQLException timeout = new SQLTransientConnectionException(
+                "HikariPool-2 - Connection is not available, request timed out after 30000ms.");
+        when(replica1.getConnection()).thenThrow(timeout, timeout).thenReturn(replica1Connection);
+        when(replica2Connection.isValid(anyInt())).thenReturn(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection whileBusy = routingDataSource.getConnection();
+        routingDataSource.checkHealth();
+        Connection afterwards = routingDataSource.getConnection();
+
+        //then
+        assertSame(replica2Connection, whileBusy);
+        assertEquals(0.0, connections("primary"), 0.0);
+        assertEquals(Arrays.asList("replica-1", "replica-2"), routingDataSource.getAvailableReplicas());
+        assertSame(replica1Connection, afterwards);
+    }
+
+    @Test
+    public void testGetConnection_AllReplicaPoolsExhausted_UsesPrimary() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.LEAST_LOADED);
+        SQLException timeout = new SQLTransientConnectionException("Connection is not available");
+        when(replica1.getConnection()).thenThrow(timeout);
+        when(replica2.getConnection()).thenThrow(timeout);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection connection = routingDataSource.getConnection();
+
+        //then
+        assertSame(primaryConnection, connection);
+        assertEquals(Arrays.asList("replica-1", "replica-2"), routingDataSource.getAvailableReplicas());
+    }
+
+    @Test
+    public void testGetConnection_TimeoutCausedByConnectionFailure_MarksReplicaUnavailable() throws Exception {
+        //given
+        ReplicaRoutingDataSource routingDataSource = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available",
+                "08S01", new SQLException("Communications link failure")));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //when
+        Connection connection = routingDataSource.getConnection();
+
+        //then
+        assertSame(replica2Connection, connection);
+        assertEquals(Collections.singletonList("replica-2"), routingDataSource.getAvailableReplicas());
+    }
+
+    private ReplicaRoutingDataSource routingDataSource(ReplicaSelection selection) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", replica1);
+        replicas.put("replica-2", replica2);
+        return new ReplicaRoutingDataSource(primary, replicas, selection, meterRegistry);
+    }
+
+    private static Connection connection(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double connections(String target) {
+        return meterRegistry.get("store.datasource.connections").tag("target", target).counter().count();
+    }
+
+    private double replicaUp(String replica) {
+        return meterRegistry.get("store.datasource.replica.up").tag("replica", replica).gauge().value();
+    }
+
+    private static DataSource dataSource(Connection connection) {
+        DataSource dataSource = mock(DataSource.class);
+        try {
+            when(dataSource.getConnection()).thenReturn(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return dataSource;
+    }
+
+    private static HikariDataSource pool(Connection connection, int activeConnections) throws SQLException {
+        HikariPoolMXBean poolMXBean = mock(HikariPoolMXBean.class);
+        when(poolMXBean.getActiveConnections()).thenReturn(activeConnections);
+        HikariDataSource pool = mock(HikariDataSource.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(pool.getHikariPoolMXBean()).thenReturn(poolMXBean);
+        return pool;
+    }
+}
@@ -0,0 +1,131 @@
+package com.store.electronicsstore.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.exceptions.ProductNotFoundException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs against a primary and two replicas held in separate embedded databases. Nothing replicates between them, so
+ * where a product is found tells which database was read.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "store.datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_1_URL,
+        "store.datasource.replicas[1].url=" + ReplicaRoutingTest.REPLICA_2_URL,
+        "store.datasource.read-your-writes-window=1s",
+        "store.cache.enabled=false", "store.cache.entity.enabled=false", "store.search.enabled=false" })
+public class ReplicaRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1_URL = "jdbc:h2:mem:routing-replica-1;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2_URL = "jdbc:h2:mem:routing-replica-2;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static boolean schemaCopied;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Rule
+    public OutputCapture output = new OutputCapture();
+
+    @Before
+    public void setup() throws SQLException {
+        if (schemaCopied) {
+            return;
+        }
+        List<String> schema = new ArrayList<>();
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+                Statement statement = primary.createStatement();
+                ResultSet script = statement.executeQuery("script nodata")) {
+            while (script.next()) {
+                schema.add(script.getString(1));
+            }
+        }
+        for (String replicaUrl : new String[] { REPLICA_1_URL, REPLICA_2_URL }) {
+            execute(replicaUrl, schema.toArray(new String[0]));
+        }
+        schemaCopied = true;
+    }
+
+    @Test
+    public void testGetProductById_ReadsFromReplicas() throws SQLException {
+        //given
+        insertProduct(REPLICA_1_URL, "R1");
+        insertProduct(REPLICA_2_URL, "R1");
+        double replicaConnectionsBefore = connections("replica-1") + connections("replica-2");
+
+        //when
+        ProductDto first = productService.getProductById("R1");
+        ProductDto second = productService.getProductById("R1");
+
+        //then
+        assertEquals("R1", first.getProductId());
+        assertEquals("R1", second.getProductId());
+        assertTrue(connections("replica-1") + connections("replica-2") >= replicaConnectionsBefore + 2);
+        assertFalse(output.toString().contains("JDBC Connection to reset not identical"));
+    }
+
+    @Test
+    public void testGetProductById_AfterWrite_ReadsFromPrimaryUntilWindowEnds() throws Exception {
+        //given
+        productService.addNewProduct(ProductDto.builder()
+                .productId("W1").name("OLED TV").manufacturer("LG").price(999).inventory(3).build());
+
+        //when
+        ProductDto readBack = productService.getProductById("W1");
+        Thread.sleep(1500);
+
+        //then
+        assertEquals("W1", readBack.getProductId());
+        try {
+            productService.getProductById("W1");
+            throw new AssertionError("Product W1 should not be on a replica");
+        } catch (ProductNotFoundException e) {
+            assertTrue(e.getMessage().contains("W1"));
+        }
+    }
+
+    private double connections(String target) {
+        return meterRegistry.get("store.datasource.connections").tag("target", target).counter().count();
+    }
+
+    private static void insertProduct(String url, String productId) throws SQLException {
+        execute(url, "insert into products (id, product_id, name, manufacturer, price, inventory, version) "
+                + "values (1000000, '" + productId + "', 'Soundbar', 'Sony', 199, 5, 0)");
+    }
+
+    private static void execute(String url, String... sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            for (String command : sql) {
+                statement.execute(command);
+            }
+        }
+    }
+}
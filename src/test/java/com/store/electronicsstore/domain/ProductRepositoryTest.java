@@ -0,0 +1,213 @@
+package com.store.electronicsstore.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ProductRepositoryTest {
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void testFindByProductId_RepeatedLookupsAreServedFromCache() {
+        //given
+        productRepository.save(product("cached1"));
+        statistics.clear();
+
+        //when
+        Product first = productRepository.findByProductId("cached1").get();
+        Product second = productRepository.findByProductId("cached1").get();
+
+        //then
+        assertEquals("cached1", first.getProductId());
+        assertEquals("cached1", second.getProductId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getNaturalIdCacheHitCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void testFindByProductId_SeesEntityUpdate() {
+        //given
+        productRepository.save(product("cached2"));
+        Product product = productRepository.findByProductId("cached2").get();
+        product.setName("renamed");
+
+        //when
+        productRepository.save(product);
+
+        //then
+        assertEquals("renamed", productRepository.findByProductId("cached2").get().getName());
+    }
+
+    @Test
+    public void testFindByProductId_SeesBulkInventoryUpdate() {
+        //given
+        productRepository.save(product("cached3"));
+        productRepository.findByProductId("cached3");
+
+        //when
+        transactionTemplate.execute(status -> productRepository.updateInventory("cached3", 7));
+
+        //then
+        assertEquals(7, productRepository.findByProductId("cached3").get().getInventory());
+    }
+
+    @Test
+    public void testUpdateInventory_KeepsOtherProductsCached() {
+        //given
+        productRepository.save(product("cached5"));
+        productRepository.save(product("cached6"));
+        productRepository.findByProductId("cached5");
+        productRepository.findByProductId("cached6");
+
+        //when
+        transactionTemplate.execute(status -> productRepository.adjustInventory("cached5", -1)
+                + productRepository.updateInventory("cached5", 3));
+        statistics.clear();
+        Product other = productRepository.findByProductId("cached6").get();
+
+        //then
+        assertEquals(25, other.getInventory());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(3, productRepository.findByProductId("cached5").get().getInventory());
+    }
+
+    @Test
+    public void testAdjustInventory_ProductIdNotCached_RunsOneStatement() {
+        //given
+        productRepository.save(product("cold1"));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        statistics.clear();
+
+        //when
+        int adjusted = transactionTemplate.execute(status -> productRepository.adjustInventory("cold1", -1));
+
+        //then
+        assertEquals(1, adjusted);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindById_SeesBulkInventoryUpdate_WhenOnlyTheEntityIsCached() {
+        //given
+        Long id = productRepository.save(product("cold2")).getId();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        productRepository.findById(id);
+        statistics.clear();
+        assertEquals(25, productRepository.findById(id).get().getInventory());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        //when
+        transactionTemplate.execute(status -> productRepository.updateInventory("cold2", 7));
+
+        //then
+        assertEquals(7, productRepository.findById(id).get().getInventory());
+    }
+
+    @Test
+    public void testAdjustInventoryAtLeastZero_LeavesZeroItemsInsteadOfNegativeInventory() {
+        //given
+        productRepository.save(product("floored1"));
+
+        //when
+        int removed = transactionTemplate.execute(status -> productRepository.adjustInventoryAtLeastZero("floored1",
+                -30));
+        int unknown = transactionTemplate.execute(status -> productRepository.adjustInventoryAtLeastZero("unknown",
+                -30));
+
+        //then
+        assertEquals(1, removed);
+        assertEquals(0, unknown);
+        assertEquals(0, productRepository.findByProductId("floored1").get().getInventory());
+    }
+
+    @Test
+    public void testFindByProductId_SeesProductAddedAgainAfterDelete() {
+        //given
+        productRepository.save(product("cached7"));
+        productRepository.findByProductId("cached7");
+        transactionTemplate.execute(status -> productRepository.deleteByProductId("cached7"));
+
+        //when
+        Product added = productRepository.save(product("cached7"));
+
+        //then
+        assertEquals(added.getId(), productRepository.findByProductId("cached7").get().getId());
+    }
+
+    @Test
+    public void testFindByProductId_SeesDelete() {
+        //given
+        productRepository.save(product("cached4"));
+        assertTrue(productRepository.findByProductId("cached4").isPresent());
+
+        //when
+        int deleted = transactionTemplate.execute(status -> productRepository.deleteByProductId("cached4"));
+
+        //then
+        assertEquals(1, deleted);
+        assertFalse(productRepository.findByProductId("cached4").isPresent());
+    }
+
+    @Test
+    public void testDeleteByProductIdIn_CountsOnlyExistingProducts() {
+        //given
+        productRepository.save(product("purged1"));
+        productRepository.save(product("purged2"));
+        productRepository.findByProductId("purged1");
+
+        //when
+        int deleted = transactionTemplate.execute(status -> productRepository.deleteByProductIdIn(
+                Arrays.asList("purged1", "purged2", "unknown")));
+
+        //then
+        assertEquals(2, deleted);
+        assertFalse(productRepository.findByProductId("purged1").isPresent());
+        assertFalse(productRepository.findByProductId("purged2").isPresent());
+    }
+
+    @Test
+    public void testFindByProductId_UnknownProduct() {
+        //when //then
+        assertFalse(productRepository.findByProductId("unknown").isPresent());
+    }
+
+    private Product product(String productId) {
+        return Product.builder().productId(productId).name("Smart TV").manufacturer("Samsung").price(499.99f)
+                .inventory(25).build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.store.electronicsstore.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.electronicsstore.config.StoreProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConcurrencyLimitFilterTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final MockFilterChain countingChain = new MockFilterChain() {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            passed.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void testDoFilter_OverLimit_RejectsWith429() throws Exception {
+        //given
+        ConcurrencyLimitFilter filter = filter(1);
+        MockHttpServletResponse rejectedResponse = new MockHttpServletResponse();
+        MockFilterChain nestedChain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                try {
+                    filter.doFilter(request("/v1/products"), rejectedResponse, countingChain);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        //when
+        filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), nestedChain);
+
+        //then
+        assertEquals(0, passed.get());
+        assertEquals(429, rejectedResponse.getStatus());
+        assertEquals(ConcurrencyLimitFilter.RETRY_AFTER_SECONDS, rejectedResponse.getHeader("Retry-After"));
+        assertTrue(rejectedResponse.getContentAsString().contains("The store is busy, please retry."));
+        assertEquals(1.0, meterRegistry.get("store.requests.rejected").counter().count(), 0.0);
+    }
+
+    @Test
+    public void testDoFilter_ReleasesPermitAfterRequest() throws Exception {
+        //given
+        ConcurrencyLimitFilter filter = filter(1);
+
+        //when
+        filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), countingChain);
+        filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), countingChain);
+
+        //then
+        assertEquals(2, passed.get());
+    }
+
+    @Test
+    public void testDoFilter_AsyncRequest_HoldsPermitUntilComplete() throws Exception {
+        //given
+        ConcurrencyLimitFilter filter = filter(1);
+        MockHttpServletRequest asyncRequest = request("/v1/products");
+        asyncRequest.setAsyncSupported(true);
+        MockFilterChain asyncChain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                request.startAsync();
+            }
+        };
+        filter.doFilter(asyncRequest, new MockHttpServletResponse(), asyncChain);
+        MockHttpServletResponse whileAsync = new MockHttpServletResponse();
+
+        //when
+        filter.doFilter(request("/v1/products"), whileAsync, countingChain);
+        asyncRequest.getAsyncContext().complete();
+        filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), countingChain);
+
+        //then
+        assertEquals(429, whileAsync.getStatus());
+        assertEquals(1, passed.get());
+    }
+
+    @Test
+    public void testDoFilter_OutsideV1_NotLimited() throws Exception {
+        //given
+        ConcurrencyLimitFilter filter = filter(1);
+        MockFilterChain nestedChain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                try {
+                    filter.doFilter(request("/actuator/health"), new MockHttpServletResponse(), countingChain);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        //when
+        filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), nestedChain);
+
+        //then
+        assertEquals(1, passed.get());
+    }
+
+    @Test
+    public void testDoFilter_WaitingRequests_NotLimited() throws Exception {
+        //given
+        ConcurrencyLimitFilter filter = filter(1);
+        MockFilterChain nestedChain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                try {
+                    filter.doFilter(request("/v1/products/changes"), new MockHttpServletResponse(), countingChain);
+                    filter.doFilter(request("/v1/stream/inventory"), new MockHttpServletResponse(), countingChain);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        //when
+        filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), nestedChain);
+
+        //then
+        assertEquals(2, passed.get());
+    }
+
+    @Test
+    public void testDoFilter_WithoutLimit_PassesEverything() throws Exception {
+        //given
+        ConcurrencyLimitFilter filter = filter(0);
+
+        //when
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(request("/v1/products"), new MockHttpServletResponse(), countingChain);
+        }
+
+        //then
+        assertEquals(3, passed.get());
+    }
+
+    private ConcurrencyLimitFilter filter(int maxConcurrentRequests) throws Exception {
+        StoreProperties storeProperties = new StoreProperties();
+        storeProperties.getHttp().setMaxConcurrentRequests(maxConcurrentRequests);
+        return new ConcurrencyLimitFilter(storeProperties, new ObjectMapper(), meterRegistry);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
@@ -0,0 +1,73 @@
+package com.store.electronicsstore.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class CorrelationIdInterceptorTest {
+    private final CorrelationIdInterceptor correlationIdInterceptor = new CorrelationIdInterceptor();
+    private final AtomicReference<String> correlationIdInChain = new AtomicReference<>();
+    private final MockFilterChain filterChain = new MockFilterChain() {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            correlationIdInChain.set(MDC.get(CorrelationIdInterceptor.CORRELATION_ID));
+        }
+    };
+
+    @Test
+    public void testDoFilter_UsesUpstreamCorrelationId() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(CorrelationIdInterceptor.CORRELATION_ID, "upstream-42");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        correlationIdInterceptor.doFilter(request, response, filterChain);
+
+        //then
+        assertEquals("upstream-42", correlationIdInChain.get());
+        assertEquals("upstream-42", response.getHeader(CorrelationIdInterceptor.CORRELATION_ID));
+        assertNull(MDC.get(CorrelationIdInterceptor.CORRELATION_ID));
+    }
+
+    @Test
+    public void testDoFilter_WithoutUsableHeader_GeneratesCorrelationId() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(CorrelationIdInterceptor.CORRELATION_ID, "forged\nline");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        correlationIdInterceptor.doFilter(request, response, filterChain);
+
+        //then
+        assertNotNull(correlationIdInChain.get());
+        assertNotEquals("forged\nline", correlationIdInChain.get());
+        assertEquals(correlationIdInChain.get(), response.getHeader(CorrelationIdInterceptor.CORRELATION_ID));
+        assertNull(MDC.get(CorrelationIdInterceptor.CORRELATION_ID));
+    }
+
+    @Test
+    public void testGenerator_ProducesVersion4Uuids() {
+        //when
+        UUID uuid = UUID.fromString(CorrelationIdGenerator.next());
+
+        //then
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertNotEquals(CorrelationIdGenerator.next(), CorrelationIdGenerator.next());
+    }
+}
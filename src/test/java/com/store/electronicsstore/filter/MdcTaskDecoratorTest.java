@@ -0,0 +1,41 @@
+package com.store.electronicsstore.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+public class MdcTaskDecoratorTest {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        MDC.clear();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDecorate_RunsTaskWithSubmitterMdcAndRestoresWorkerMdc() throws Exception {
+        //given
+        AtomicReference<String> inTask = new AtomicReference<>();
+        executor.submit(() -> MDC.put(CorrelationIdInterceptor.CORRELATION_ID, "stale")).get();
+        MDC.put(CorrelationIdInterceptor.CORRELATION_ID, "request-1");
+
+        //when
+        Runnable task = new MdcTaskDecorator()
+                .decorate(() -> inTask.set(MDC.get(CorrelationIdInterceptor.CORRELATION_ID)));
+        MDC.clear();
+        executor.submit(task).get();
+
+        //then
+        assertEquals("request-1", inTask.get());
+        assertEquals("stale", executor.submit(() -> MDC.get(CorrelationIdInterceptor.CORRELATION_ID)).get());
+        assertNull(MDC.get(CorrelationIdInterceptor.CORRELATION_ID));
+    }
+}
@@ -0,0 +1,67 @@
+package com.store.electronicsstore.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.exceptions.ProductNotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RepositoryMetricsAspectTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductRepository target = mock(ProductRepository.class);
+    private ProductRepository productRepository;
+
+    @Before
+    public void setup() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setInterfaces(ProductRepository.class);
+        proxyFactory.addAspect(new RepositoryMetricsAspect(meterRegistry));
+        productRepository = proxyFactory.getProxy();
+    }
+
+    @Test
+    public void testTime_RecordsCallsPerRepositoryAndMethod() {
+        //given
+        given(target.findByProductId("A1013")).willReturn(Optional.empty());
+
+        //when
+        productRepository.findByProductId("A1013");
+        productRepository.findByProductId("A1013");
+        productRepository.count();
+
+        //then
+        assertEquals(2, meterRegistry.get(RepositoryMetricsAspect.METRIC_NAME)
+                .tags("repository", "ProductRepository", "method", "findByProductId", "exception", "None")
+                .timer().count());
+        assertEquals(1, meterRegistry.get(RepositoryMetricsAspect.METRIC_NAME)
+                .tags("repository", "ProductRepository", "method", "count")
+                .timer().count());
+    }
+
+    @Test
+    public void testTime_RecordsFailuresByExceptionType() {
+        //given
+        given(target.findByProductId("A1013")).willThrow(new ProductNotFoundException("not found"));
+
+        //when
+        try {
+            productRepository.findByProductId("A1013");
+        } catch (ProductNotFoundException e) {
+            // expected
+        }
+
+        //then
+        assertEquals(1, meterRegistry.get(RepositoryMetricsAspect.METRIC_NAME)
+                .tags("method", "findByProductId", "exception", "ProductNotFoundException")
+                .timer().count());
+    }
+}
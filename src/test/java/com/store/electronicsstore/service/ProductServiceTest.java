@@ -1,30 +1,78 @@
 package com.store.electronicsstore.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import javax.validation.Validator;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.modelmapper.ModelMapper;
-
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.datasource.ReadYourWrites;
 import com.store.electronicsstore.domain.Product;
 import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.cache.CatalogVersion;
+import com.store.electronicsstore.service.cache.ProductCache;
+import com.store.electronicsstore.service.dto.BulkDeleteResultDto;
+import com.store.electronicsstore.service.dto.BulkProductItemResultDto;
+import com.store.electronicsstore.service.dto.BulkProductItemResultDto.Status;
+import com.store.electronicsstore.service.dto.BulkProductResultDto;
+import com.store.electronicsstore.service.dto.ProductBatchDto;
 import com.store.electronicsstore.service.dto.ProductDto;
+import com.store.electronicsstore.service.dto.ProductPageDto;
+import com.store.electronicsstore.service.dto.ProductSearchCriteria;
+import com.store.electronicsstore.service.dto.ProductSearchResultDto;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+import com.store.electronicsstore.service.exceptions.InsufficientInventoryException;
 import com.store.electronicsstore.service.exceptions.ProductAlreadyExistsException;
 import com.store.electronicsstore.service.exceptions.ProductNotFoundException;
 import com.store.electronicsstore.service.exceptions.ProductsNotPresentException;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+import com.store.electronicsstore.service.feed.ProductChangeOutbox;
+import com.store.electronicsstore.service.inventory.InventoryWriteBehind;
+import com.store.electronicsstore.service.mapper.ProductMapper;
+import com.store.electronicsstore.service.search.ProductTextIndex;
+import com.store.electronicsstore.service.snapshot.ProductSnapshot;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ProductServiceTest {
@@ -35,7 +83,38 @@ public class ProductServiceTest {
     private ProductRepository productRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
+
+    @Spy
+    private StoreProperties storeProperties = new StoreProperties();
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ReadYourWrites readYourWrites = new ReadYourWrites(new StoreProperties());
+
+    @Spy
+    private ProductCache productCache = new ProductCache(new StoreProperties(), readYourWrites);
+
+    @Mock
+    private InventoryWriteBehind inventoryWriteBehind;
+
+    @Mock
+    private ProductTextIndex productTextIndex;
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion(new StoreProperties(),
+            mock(ProductChangeFeed.class));
+
+    @Mock
+    private ProductChangeOutbox productChangeOutbox;
+
+    @Mock
+    private ProductSnapshot productSnapshot;
 
     @InjectMocks
     private ProductService productService;
@@ -47,13 +126,14 @@ public class ProductServiceTest {
         Product product = mock(Product.class);
         given(productDto.getProductId()).willReturn(productId);
         given(productRepository.findByProductId(productId)).willReturn(Optional.empty());
-        given(modelMapper.map(productDto, Product.class)).willReturn(product);
+        given(productMapper.toEntity(productDto)).willReturn(product);
 
         //when
         productService.addNewProduct(productDto);
 
         //then
         verify(productRepository).save(product);
+        verify(productChangeOutbox).created(product);
     }
 
     @Test(expected = ProductAlreadyExistsException.class)
@@ -68,19 +148,119 @@ public class ProductServiceTest {
         productService.addNewProduct(productDto);
     }
 
+    @Test
+    public void testAddNewProducts() {
+        //given
+        storeProperties.getProducts().setBulkBatchSize(2);
+        ProductDto newProduct = ProductDto.builder().productId("B1").name("new").build();
+        ProductDto otherNewProduct = ProductDto.builder().productId("B2").name("other").build();
+        ProductDto existingProduct = ProductDto.builder().productId(productId).name("existing").build();
+        ProductDto repeatedProduct = ProductDto.builder().productId("B1").name("repeated").build();
+        ProductDto invalidProduct = ProductDto.builder().productId("B3").inventory(-1).build();
+        given(productRepository.findExistingProductIds(Arrays.asList("B1", "B2", productId, "B3")))
+                .willReturn(Collections.singleton(productId));
+        given(productMapper.toEntity(any(ProductDto.class))).willReturn(mock(Product.class));
+
+        //when
+        BulkProductResultDto result = productService.addNewProducts(
+                Arrays.asList(newProduct, otherNewProduct, existingProduct, repeatedProduct, invalidProduct));
+
+        //then
+        assertEquals(2, result.getCreated());
+        assertEquals(3, result.getRejected());
+        assertEquals(Arrays.asList(Status.CREATED, Status.CREATED, Status.DUPLICATE, Status.DUPLICATE, Status.INVALID),
+                result.getItems().stream().map(BulkProductItemResultDto::getStatus).collect(Collectors.toList()));
+        assertEquals("inventory Inventory should be positive value., name must not be null",
+                result.getItems().get(4).getMessage());
+        verify(productRepository, times(2)).save(any(Product.class));
+        verify(productRepository, times(1)).findExistingProductIds(any());
+        verify(entityManager).flush();
+        verify(entityManager).clear();
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testAddNewProducts_WhenTooManyProducts_ThenThrowsBadRequestException() {
+        //given
+        storeProperties.getProducts().setMaxBulkSize(1);
+
+        //when
+        productService.addNewProducts(Arrays.asList(new ProductDto(), new ProductDto()));
+    }
+
+    @Test
+    public void testAddNewProducts_WhenListContainsNull_ThenThrowsBadRequestException() {
+        //when
+        try {
+            productService.addNewProducts(Arrays.asList(new ProductDto(), null));
+            fail("Expected BadRequestException");
+        } catch (BadRequestException e) {
+            //then
+            assertEquals("products cannot contain null", e.getMessage());
+        }
+        verify(productRepository, never()).save(any());
+    }
+
     @Test
     public void testGetProductById() {
         //given
         Product product = mock(Product.class);
         ProductDto productDto = mock(ProductDto.class);
         given(productRepository.findByProductId(productId)).willReturn(Optional.ofNullable(product));
-        given(modelMapper.map(product, ProductDto.class)).willReturn(productDto);
+        given(productMapper.toDto(product)).willReturn(productDto);
+
+        //when
+        ProductDto actualProductDto = productService.getProductById(productId);
+
+        //then
+        assertEquals(productDto, actualProductDto);
+    }
+
+    @Test
+    public void testGetProductById_When_CalledTwice_Then_ReadsDatabaseOnce() {
+        //given
+        Product product = mock(Product.class);
+        ProductDto productDto = mock(ProductDto.class);
+        given(productRepository.findByProductId(productId)).willReturn(Optional.ofNullable(product));
+        given(productMapper.toDto(product)).willReturn(productDto);
 
         //when
+        productService.getProductById(productId);
         ProductDto actualProductDto = productService.getProductById(productId);
 
         //then
         assertEquals(productDto, actualProductDto);
+        verify(productRepository, times(1)).findByProductId(productId);
+        assertEquals(1, productService.getProductCacheStats().getHitCount());
+    }
+
+    @Test
+    public void testGetProductById_When_ProductIsUpdated_Then_ReadsDatabaseAgain() {
+        //given
+        Product product = mock(Product.class);
+        given(productRepository.findByProductId(productId)).willReturn(Optional.ofNullable(product));
+        given(productMapper.toDto(product)).willReturn(mock(ProductDto.class));
+        productService.getProductById(productId);
+
+        //when
+        productService.updateProduct(productId, mock(ProductDto.class));
+        productService.getProductById(productId);
+
+        //then
+        verify(productRepository, times(3)).findByProductId(productId);
+    }
+
+    @Test
+    public void testGetProductById_When_InSnapshot_Then_DoesNotReadDatabase() {
+        //given
+        ProductDto productDto = ProductDto.builder().id(41L).version(3).productId(productId).build();
+        given(productSnapshot.find(productId)).willReturn(productDto);
+
+        //when
+        ProductDto actualProductDto = productService.getProductById(productId);
+
+        //then
+        assertEquals(productDto, actualProductDto);
+        verify(productRepository, never()).findByProductId(productId);
     }
 
 	@Test(expected = ProductNotFoundException.class)
@@ -102,37 +282,341 @@ public class ProductServiceTest {
         ProductDto productDto = mock(ProductDto.class);
         List<ProductDto> productDtoList = new ArrayList<>();
         productDtoList.add(productDto);
-        given(productRepository.findAll()).willReturn(productList);
-        given(modelMapper.map(product, ProductDto.class)).willReturn(productDto);
+        given(productRepository.findByIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(productList));
+        given(productMapper.toDto(product)).willReturn(productDto);
+
+        //when
+        ProductPageDto actualPage = productService.getAllProducts(null, null);
+
+        //then
+        assertEquals(productDtoList, actualPage.getProducts());
+        assertNull(actualPage.getNextCursor());
+    }
+
+    @Test
+    public void testGetAllProducts_WhenMoreProductsExist_ThenNextCursorContinuesAfterLastId() {
+        //given
+        Product product = Product.builder().id(41L).productId(productId).build();
+        given(productRepository.findByIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(Collections.singletonList(product), PageRequest.of(0, 1), true));
+        given(productRepository.findByIdGreaterThan(eq(41L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(new ArrayList<>()));
+
+        //when
+        ProductPageDto firstPage = productService.getAllProducts(null, 1);
+        ProductPageDto secondPage = productService.getAllProducts(firstPage.getNextCursor(), 1);
+
+        //then
+        assertNotNull(firstPage.getNextCursor());
+        assertTrue(secondPage.getProducts().isEmpty());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void testGetAllProducts_LimitIsCappedToMaxPageSize() {
+        //given
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        given(productRepository.findByIdGreaterThan(eq(0L), pageable.capture()))
+                .willReturn(new SliceImpl<>(Collections.singletonList(mock(Product.class))));
+
+        //when
+        productService.getAllProducts(null, Integer.MAX_VALUE);
+
+        //then
+        assertEquals(storeProperties.getProducts().getMaxPageSize(), pageable.getValue().getPageSize());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGetAllProducts_WhenCursorIsInvalid_ThenThrowsBadRequestException() {
+        //when
+        productService.getAllProducts("not-a-cursor", null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchProducts() {
+        //given
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setManufacturer("Samsung");
+        criteria.setName("Smart");
+        criteria.setSortBy("price");
+        criteria.setDirection(Sort.Direction.DESC);
+        criteria.setPage(2);
+        criteria.setSize(10);
+        Product product = mock(Product.class);
+        ProductDto productDto = mock(ProductDto.class);
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        given(productRepository.findAll(any(Specification.class), pageable.capture()))
+                .willReturn(new SliceImpl<>(Collections.singletonList(product), PageRequest.of(2, 10), true));
+        given(productMapper.toDto(product)).willReturn(productDto);
+
+        //when
+        ProductSearchResultDto result = productService.searchProducts(criteria);
+
+        //then
+        assertEquals(Collections.singletonList(productDto), result.getProducts());
+        assertEquals(2, result.getPage());
+        assertTrue(result.isHasNext());
+        assertEquals(10, pageable.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "price").and(Sort.by("id")), pageable.getValue().getSort());
+    }
+
+    @Test
+    public void testSearchProductsByText() {
+        //given
+        ProductDto first = ProductDto.builder().productId("A1").build();
+        ProductDto second = ProductDto.builder().productId("A2").build();
+        given(productTextIndex.isEnabled()).willReturn(true);
+        given(productTextIndex.search("samsung oled", storeProperties.getProducts().getDefaultPageSize()))
+                .willReturn(Arrays.asList("A2", "A1", "A3"));
+        Product firstProduct = Product.builder().productId("A1").build();
+        Product secondProduct = Product.builder().productId("A2").build();
+        given(productRepository.findByProductIdIn(any())).willReturn(Arrays.asList(firstProduct, secondProduct));
+        given(productMapper.toDto(firstProduct)).willReturn(first);
+        given(productMapper.toDto(secondProduct)).willReturn(second);
+
+        //when
+        List<ProductDto> products = productService.searchProductsByText("samsung oled", null);
+
+        //then
+        assertEquals(Arrays.asList(second, first), products);
+    }
+
+    @Test
+    public void testGetProductRevision_WhenNotCached_ThenReadsOnlyIdAndVersion() {
+        //given
+        given(productRepository.findIdAndVersion(productId))
+                .willReturn(Collections.singletonList(new Object[] { 41L, 3L }));
+
+        //when
+        String revision = productService.getProductRevision(productId);
+
+        //then
+        assertEquals("41-3", revision);
+        verify(productRepository, never()).findByProductId(any());
+    }
+
+    @Test
+    public void testGetProductRevision_WhenCached_ThenDoesNotReadDatabase() {
+        //given
+        productCache.get(productId, pid -> Optional.of(ProductDto.builder().id(41L).version(3L).build()));
+
+        //when
+        String revision = productService.getProductRevision(productId);
+
+        //then
+        assertEquals("41-3", revision);
+        verify(productRepository, never()).findIdAndVersion(any());
+    }
+
+    @Test(expected = ProductNotFoundException.class)
+    public void testGetProductRevision_WhenProductDoesNotExist_ThenThrowsProductNotFoundException() {
+        //given
+        given(productRepository.findIdAndVersion(productId)).willReturn(Collections.emptyList());
+
+        //when
+        productService.getProductRevision(productId);
+    }
+
+    @Test
+    public void testGetCatalogRevision_ChangesWithEveryWrite() {
+        //given
+        String before = productService.getCatalogRevision();
+        given(productRepository.updateInventory(productId, 1)).willReturn(1);
 
         //when
-        List<ProductDto> actualProductDto = productService.getAllProducts();
+        productService.updateQuantity(productId, 1);
 
         //then
-        assertEquals(productDtoList, actualProductDto);
+        assertNotEquals(before, productService.getCatalogRevision());
+    }
+
+    @Test
+    public void testGetProductsByIds_ReadsUncachedProductsWithOneQueryAndReportsMissingIds() {
+        //given
+        ProductDto cached = ProductDto.builder().productId("A1").build();
+        productCache.get("A1", pid -> Optional.of(cached));
+        Product product = Product.builder().productId("A2").build();
+        ProductDto productDto = ProductDto.builder().productId("A2").build();
+        given(productRepository.findByProductIdIn(any())).willReturn(Collections.singletonList(product));
+        given(productMapper.toDto(product)).willReturn(productDto);
+
+        //when
+        ProductBatchDto batch = productService.getProductsByIds(Arrays.asList("A3", "A2", "A1", "A2"));
+
+        //then
+        assertEquals(Arrays.asList(productDto, cached), batch.getProducts());
+        assertEquals(Collections.singletonList("A3"), batch.getMissing());
+        verify(productRepository, times(1)).findByProductIdIn(any());
+        verify(productRepository, never()).findByProductId(any());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGetProductsByIds_WhenIdsContainNull_ThenThrowsBadRequestException() {
+        //when
+        productService.getProductsByIds(Arrays.asList("P1", null));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGetProductsByIds_WhenTooManyIds_ThenThrowsBadRequestException() {
+        //given
+        List<String> pids = new ArrayList<>();
+        for (int i = 0; i <= storeProperties.getProducts().getMaxPageSize(); i++) {
+            pids.add("P" + i);
+        }
+
+        //when
+        productService.getProductsByIds(pids);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testSearchProductsByText_WhenIndexIsDisabled_ThenThrowsBadRequestException() {
+        //when
+        productService.searchProductsByText("samsung", null);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testSearchProducts_WhenSortPropertyIsNotIndexed_ThenThrowsBadRequestException() {
+        //given
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setSortBy("inventory");
+
+        //when
+        productService.searchProducts(criteria);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testSearchProducts_WhenMinPriceIsAboveMaxPrice_ThenThrowsBadRequestException() {
+        //given
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setMinPrice(100f);
+        criteria.setMaxPrice(10f);
+
+        //when
+        productService.searchProducts(criteria);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testSearchProducts_WhenOffsetExceedsIntRange_ThenThrowsBadRequestException() {
+        //given
+        ProductSearchCriteria criteria = new ProductSearchCriteria();
+        criteria.setPage(Integer.MAX_VALUE / 10);
+        criteria.setSize(100);
+
+        //when
+        productService.searchProducts(criteria);
     }
     
+    @Test
+    public void testExportAllProducts() {
+        //given
+        Product product = mock(Product.class);
+        ProductDto productDto = mock(ProductDto.class);
+        given(productRepository.streamAll()).willReturn(Stream.of(product));
+        given(productMapper.toDto(product)).willReturn(productDto);
+        List<ProductDto> exported = new ArrayList<>();
+
+        //when
+        productService.exportAllProducts(exported::add);
+
+        //then
+        assertEquals(Collections.singletonList(productDto), exported);
+        verify(entityManager).detach(product);
+    }
+
     @Test
     public void testUpdateQuantity() {
         //given
-    	 Product product = mock(Product.class);
-         given(productRepository.findByProductId(productId)).willReturn(Optional.ofNullable(product));
+        given(productRepository.updateInventory(productId, 2)).willReturn(1);
 
         //when
         productService.updateQuantity(productId, 2);
 
         //then
-        verify(productRepository).save(product);
+        verify(productRepository).updateInventory(productId, 2);
+        verify(productChangeOutbox).inventoryChanged(productId, 2);
 
     }
+
+    @Test(expected = ProductNotFoundException.class)
+    public void testUpdateQuantity_Given_IdDoesNotExist_Then_ThrowsProductNotFoundException() {
+        //given
+        given(productRepository.updateInventory(productId, 2)).willReturn(0);
+
+        //when
+        productService.updateQuantity(productId, 2);
+    }
+
+    @Test
+    public void testUpdateQuantity_Given_NegativeInventory_Then_ThrowsBadRequestException() {
+        //when
+        try {
+            productService.updateQuantity(productId, -5);
+            fail("Expected BadRequestException");
+        } catch (BadRequestException e) {
+            //then
+            verify(productRepository, never()).updateInventory(anyString(), anyInt());
+        }
+    }
+
+    @Test
+    public void testAdjustInventory() {
+        //given
+        given(productRepository.adjustInventory(productId, -1)).willReturn(1);
+        given(productRepository.findInventoryByProductId(productId)).willReturn(Optional.of(inventoryAvailable));
+
+        //when
+        int inventory = productService.adjustInventory(productId, -1);
+
+        //then
+        assertEquals(inventoryAvailable, inventory);
+        verify(productCache).invalidate(productId);
+        verify(productChangeOutbox).inventoryChanged(productId, inventoryAvailable);
+    }
+
+    @Test
+    public void testAdjustInventory_When_WriteBehindIsEnabled_Then_DoesNotUpdateDatabase() {
+        //given
+        given(inventoryWriteBehind.isEnabled()).willReturn(true);
+        given(inventoryWriteBehind.adjust(productId, -1)).willReturn(inventoryAvailable);
+
+        //when
+        int inventory = productService.adjustInventory(productId, -1);
+
+        //then
+        assertEquals(inventoryAvailable, inventory);
+        verify(productRepository, never()).adjustInventory(productId, -1);
+    }
+
+    @Test(expected = InsufficientInventoryException.class)
+    public void testAdjustInventory_Given_NotEnoughInventory_Then_ThrowsInsufficientInventoryException() {
+        //given
+        given(productRepository.adjustInventory(productId, -3)).willReturn(0);
+        given(productRepository.findInventoryByProductId(productId)).willReturn(Optional.of(inventoryAvailable));
+
+        //when
+        productService.adjustInventory(productId, -3);
+    }
+
+    @Test(expected = ProductNotFoundException.class)
+    public void testAdjustInventory_Given_IdDoesNotExist_Then_ThrowsProductNotFoundException() {
+        //given
+        given(productRepository.adjustInventory(productId, 1)).willReturn(0);
+        given(productRepository.findInventoryByProductId(productId)).willReturn(Optional.empty());
+
+        //when
+        productService.adjustInventory(productId, 1);
+    }
     
     @Test(expected = ProductsNotPresentException.class)
     public void testGetAllProducts_WhenNoProductExist_ThenThrowException() {
         //given
-        given(productRepository.findAll()).willReturn(new ArrayList<>());
+        given(productRepository.findByIdGreaterThan(eq(0L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(new ArrayList<>()));
 
         //when
-        productService.getAllProducts();
+        productService.getAllProducts(null, null);
 
     }
 
@@ -141,7 +625,8 @@ public class ProductServiceTest {
         //given
         Product product = mock(Product.class);
         given(productRepository.findByProductId(productId)).willReturn(Optional.ofNullable(product));
-        given(product.getInventory()).willReturn(inventoryAvailable);
+        given(productMapper.toDto(product))
+                .willReturn(ProductDto.builder().inventory(inventoryAvailable).build());
 
         //when
         int productInventory = productService.getNumberOfProductsById(productId);
@@ -157,9 +642,11 @@ public class ProductServiceTest {
 
         //when
         int productInventory = productService.getNumberOfProductsById(productId);
+        productService.getNumberOfProductsById(productId);
 
         //then
         assertEquals(0, productInventory);
+        verify(productRepository, times(1)).findByProductId(productId);
     }
 
    @Test
@@ -175,6 +662,7 @@ public class ProductServiceTest {
 
         //then
         verify(productRepository).save(product);
+        verify(productChangeOutbox).updated(product);
     }
 
    @Test(expected = ProductNotFoundException.class)
@@ -202,12 +690,81 @@ public class ProductServiceTest {
 
    @Test
    public void testRemoveProduct() {
+       //given
+       given(productRepository.deleteByProductId(productId)).willReturn(1);
+       String catalogRevision = productService.getCatalogRevision();
 
        //when
-       productService.removeProduct(productId);
+       boolean removed = productService.removeProduct(productId);
 
        //then
+       assertTrue(removed);
        verify(productRepository, times(1)). deleteByProductId(productId);
+       verify(productCache).invalidate(productId);
+       verify(productChangeOutbox).removed(productId);
+       assertNotEquals(catalogRevision, productService.getCatalogRevision());
    }
 
+    @Test
+    public void testRemoveProduct_WhenProductDoesNotExist_ThenReturnsFalse() {
+        //given
+        given(productRepository.deleteByProductId(productId)).willReturn(0);
+        String catalogRevision = productService.getCatalogRevision();
+
+        //when
+        boolean removed = productService.removeProduct(productId);
+
+        //then
+        assertFalse(removed);
+        verify(productChangeOutbox, never()).removed(productId);
+        assertEquals(catalogRevision, productService.getCatalogRevision());
+    }
+
+    @Test
+    public void testRemoveProducts() {
+        //given
+        List<String> productIds = IntStream.range(0, 1500).mapToObj(i -> "R" + i).collect(Collectors.toList());
+        List<String> submitted = new ArrayList<>(productIds);
+        submitted.add("R0");
+        given(productRepository.findExistingProductIds(productIds.subList(0, 1000)))
+                .willReturn(new HashSet<>(productIds.subList(0, 990)));
+        given(productRepository.findExistingProductIds(productIds.subList(1000, 1500)))
+                .willReturn(new HashSet<>(productIds.subList(1000, 1500)));
+        given(productRepository.deleteByProductIdIn(productIds.subList(0, 1000))).willReturn(990);
+        given(productRepository.deleteByProductIdIn(productIds.subList(1000, 1500))).willReturn(500);
+
+        //when
+        BulkDeleteResultDto result = productService.removeProducts(submitted);
+
+        //then
+        assertEquals(1500, result.getRequested());
+        assertEquals(1490, result.getDeleted());
+        verify(productCache).invalidateAll(productIds);
+        verify(productChangeOutbox, times(1490)).removed(any());
+        verify(productChangeOutbox).removed("R1499");
+        verify(productChangeOutbox, never()).removed("R999");
+    }
+
+    @Test
+    public void testRemoveProducts_WhenIdsContainNull_ThenThrowsBadRequestException() {
+        //when
+        try {
+            productService.removeProducts(Arrays.asList("R1", null));
+            fail("Expected BadRequestException");
+        } catch (BadRequestException e) {
+            //then
+            assertEquals("productIds cannot contain null", e.getMessage());
+        }
+        verify(productRepository, never()).deleteByProductIdIn(anyList());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testRemoveProducts_WhenTooManyProducts_ThenThrowsBadRequestException() {
+        //given
+        storeProperties.getProducts().setMaxBulkSize(1);
+
+        //when
+        productService.removeProducts(Arrays.asList("R1", "R2"));
+    }
+
 }
@@ -0,0 +1,80 @@
+package com.store.electronicsstore.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CatalogVersionTest {
+
+    @Mock
+    private ProductChangeFeed productChangeFeed;
+
+    private final CompletableFuture<ProductChangeBatchDto> firstBatch = new CompletableFuture<>();
+
+    private CatalogVersion catalogVersion;
+
+    @Before
+    public void setup() {
+        given(productChangeFeed.recentOffset()).willReturn(10L);
+        given(productChangeFeed.poll(anyLong(), anyInt(), any())).willReturn(firstBatch, new CompletableFuture<>());
+        catalogVersion = new CatalogVersion(new StoreProperties(), productChangeFeed);
+        catalogVersion.start();
+        verify(productChangeFeed, timeout(5000)).poll(eq(10L), anyInt(), any());
+    }
+
+    @After
+    public void tearDown() {
+        catalogVersion.stop();
+    }
+
+    @Test
+    public void testCurrent_MovesWithChangesOfOtherNodes() {
+        //given
+        String before = catalogVersion.current();
+
+        //when
+        firstBatch.complete(new ProductChangeBatchDto(Collections.singletonList(ProductChangeDto.builder()
+                .sequence(11).productId("A1").type(ProductChangeEvent.Type.INVENTORY_CHANGED).inventory(4).build()),
+                11));
+
+        //then
+        verify(productChangeFeed, timeout(5000)).poll(eq(11L), anyInt(), any());
+        assertNotEquals(before, catalogVersion.current());
+    }
+
+    @Test
+    public void testCurrent_StaysWithoutChanges() {
+        //given
+        String before = catalogVersion.current();
+
+        //when
+        firstBatch.complete(new ProductChangeBatchDto(Collections.emptyList(), 10));
+
+        //then
+        verify(productChangeFeed, timeout(5000).times(2)).poll(eq(10L), anyInt(), any());
+        assertEquals(before, catalogVersion.current());
+    }
+}
@@ -0,0 +1,145 @@
+package com.store.electronicsstore.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.datasource.ReadYourWrites;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+public class ProductCacheTest {
+    private final String productId = "A1013";
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, Optional<ProductDto>> loader = pid -> {
+        loads.incrementAndGet();
+        return Optional.of(ProductDto.builder().productId(pid).build());
+    };
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testGet_CachesMissingProducts() {
+        //given
+        ProductCache productCache = newProductCache(new StoreProperties());
+
+        //when
+        productCache.get(productId, pid -> Optional.empty());
+        Optional<ProductDto> product = productCache.get(productId, loader);
+
+        //then
+        assertFalse(product.isPresent());
+        assertEquals(0, loads.get());
+        assertEquals(1, productCache.stats().getHitCount());
+        assertEquals(1, productCache.stats().getMissCount());
+    }
+
+    @Test
+    public void testGet_WhenDisabled_ThenAlwaysLoads() {
+        //given
+        StoreProperties storeProperties = new StoreProperties();
+        storeProperties.getCache().setEnabled(false);
+        ProductCache productCache = newProductCache(storeProperties);
+
+        //when
+        productCache.get(productId, loader);
+        productCache.get(productId, loader);
+
+        //then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGetAll_LoadsOnlyMissingIdsAtOnceAndCachesMissingProducts() {
+        //given
+        ProductCache productCache = newProductCache(new StoreProperties());
+        productCache.get(productId, loader);
+        List<Set<String>> loadedIds = new ArrayList<>();
+
+        //when
+        Map<String, Optional<ProductDto>> products = productCache.getAll(Arrays.asList(productId, "B1", "C1"),
+                pids -> {
+                    loadedIds.add(pids);
+                    Map<String, Optional<ProductDto>> loaded = new HashMap<>();
+                    pids.forEach(pid -> loaded.put(pid, Optional.empty()));
+                    return loaded;
+                });
+        productCache.getAll(Arrays.asList("B1", "C1"), pids -> {
+            loadedIds.add(pids);
+            return new HashMap<>();
+        });
+
+        //then
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("B1", "C1"))), loadedIds);
+        assertTrue(products.get(productId).isPresent());
+        assertFalse(products.get("B1").isPresent());
+    }
+
+    @Test
+    public void testInvalidate_InsideTransaction_DropsEntryLoadedBeforeCommitAgain() {
+        //given
+        ProductCache productCache = newProductCache(new StoreProperties());
+        TransactionSynchronizationManager.initSynchronization();
+
+        //when
+        productCache.invalidate(productId);
+        productCache.get(productId, loader);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        productCache.get(productId, loader);
+
+        //then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGet_AfterInvalidateWithReplicas_LoadsFromPrimary() {
+        //given
+        StoreProperties storeProperties = new StoreProperties();
+        StoreProperties.Replica replica = new StoreProperties.Replica();
+        replica.setUrl("jdbc:h2:mem:replica");
+        storeProperties.getDatasource().getReplicas().add(replica);
+        ProductCache productCache = newProductCache(storeProperties);
+        List<Boolean> primaryRequired = new ArrayList<>();
+        Function<String, Optional<ProductDto>> recordingLoader = pid -> {
+            primaryRequired.add(ReadYourWrites.isPrimaryRequired());
+            return loader.apply(pid);
+        };
+
+        //when
+        productCache.get("B1", recordingLoader);
+        productCache.invalidate(productId);
+        productCache.get(productId, recordingLoader);
+
+        //then
+        assertEquals(Arrays.asList(false, true), primaryRequired);
+        assertFalse(ReadYourWrites.isPrimaryRequired());
+    }
+
+    private static ProductCache newProductCache(StoreProperties storeProperties) {
+        return new ProductCache(storeProperties, new ReadYourWrites(storeProperties));
+    }
+}
@@ -0,0 +1,259 @@
+package com.store.electronicsstore.service.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.dto.InventoryUpdateDto;
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InventoryStreamTest {
+
+    @Mock
+    private ProductChangeFeed productChangeFeed;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private final StoreProperties storeProperties = new StoreProperties();
+
+    private final CompletableFuture<ProductChangeBatchDto> firstBatch = new CompletableFuture<>();
+
+    private InventoryStream inventoryStream;
+
+    @Before
+    public void setup() {
+        storeProperties.getStream().setMaxSubscribers(2);
+        storeProperties.getStream().setMaxProductsPerSubscription(2);
+        given(productChangeFeed.poll(anyLong(), anyInt(), any()))
+                .willReturn(firstBatch, new CompletableFuture<>());
+        inventoryStream = new InventoryStream(storeProperties, productChangeFeed, productRepository,
+                new ObjectMapper(), new SimpleMeterRegistry());
+        inventoryStream.start();
+        verify(productChangeFeed, timeout(5000)).poll(eq(0L), anyInt(), any());
+    }
+
+    @After
+    public void tearDown() {
+        inventoryStream.stop();
+    }
+
+    @Test
+    public void testSubscribe_SendsCurrentInventoryThenChangesOfFollowedProducts() throws Exception {
+        //given
+        given(productRepository.findInventories(any()))
+                .willReturn(Arrays.asList(new Object[] { "A1", 5 }, new Object[] { "B2", 1 }));
+        RecordingOutput output = new RecordingOutput(true);
+        inventoryStream.subscribe(Arrays.asList("A1", "B2"), new SseEmitter()).connect(output);
+        output.await(2);
+
+        //when
+        firstBatch.complete(batch(change(11, "A1", ProductChangeEvent.Type.INVENTORY_CHANGED, 4),
+                change(12, "C3", ProductChangeEvent.Type.INVENTORY_CHANGED, 9),
+                change(13, "B2", ProductChangeEvent.Type.REMOVED, null)));
+
+        //then
+        output.await(4);
+        assertEquals(Arrays.asList("inventory A1=5", "inventory B2=1", "inventory A1=4", "removed B2=null"),
+                output.events());
+    }
+
+    @Test
+    public void testPublish_SlowSubscriber_GetsLatestInventoryOnly() throws Exception {
+        //given
+        given(productRepository.findInventories(any()))
+                .willReturn(Collections.singletonList(new Object[] { "A1", 5 }));
+        RecordingOutput output = new RecordingOutput(false);
+        inventoryStream.subscribe(Collections.singletonList("A1"), new SseEmitter()).connect(output);
+
+        //when
+        firstBatch.complete(batch(change(11, "A1", ProductChangeEvent.Type.INVENTORY_CHANGED, 4),
+                change(12, "A1", ProductChangeEvent.Type.INVENTORY_CHANGED, 3),
+                change(13, "A1", ProductChangeEvent.Type.INVENTORY_CHANGED, 2)));
+        verify(productChangeFeed, timeout(5000)).poll(eq(13L), anyInt(), any());
+        output.becomeReady();
+
+        //then
+        output.await(1);
+        assertEquals(Collections.singletonList("inventory A1=2"), output.events());
+    }
+
+    @Test
+    public void testPublish_SubscriberNotReading_DoesNotHoldUpOthers() throws Exception {
+        //given
+        storeProperties.getStream().setSendThreads(1);
+        inventoryStream.stop();
+        given(productChangeFeed.poll(anyLong(), anyInt(), any())).willReturn(firstBatch, new CompletableFuture<>());
+        inventoryStream = new InventoryStream(storeProperties, productChangeFeed, productRepository,
+                new ObjectMapper(), new SimpleMeterRegistry());
+        inventoryStream.start();
+        given(productRepository.findInventories(any()))
+                .willReturn(Collections.singletonList(new Object[] { "A1", 5 }));
+        RecordingOutput notReading = new RecordingOutput(false);
+        inventoryStream.subscribe(Collections.singletonList("A1"), new SseEmitter()).connect(notReading);
+        RecordingOutput reading = new RecordingOutput(true);
+        inventoryStream.subscribe(Collections.singletonList("A1"), new SseEmitter()).connect(reading);
+        reading.await(1);
+
+        //when
+        firstBatch.complete(batch(change(11, "A1", ProductChangeEvent.Type.INVENTORY_CHANGED, 4)));
+
+        //then
+        reading.await(2);
+        assertEquals(Arrays.asList("inventory A1=5", "inventory A1=4"), reading.events());
+        assertEquals(Collections.emptyList(), notReading.events());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testSubscribe_TooManyProducts_ThrowsBadRequestException() {
+        //when
+        inventoryStream.subscribe(Arrays.asList("A1", "B2", "C3"), new SseEmitter());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testSubscribe_SubscriberLimitReached_ThrowsRejectedExecutionException() {
+        //given
+        inventoryStream.subscribe(Collections.singletonList("A1"), new SseEmitter());
+        inventoryStream.subscribe(Collections.singletonList("A1"), new SseEmitter());
+
+        //when
+        inventoryStream.subscribe(Collections.singletonList("A1"), new SseEmitter());
+    }
+
+    private static ProductChangeBatchDto batch(ProductChangeDto... changes) {
+        return new ProductChangeBatchDto(Arrays.asList(changes), changes[changes.length - 1].getSequence());
+    }
+
+    private static ProductChangeDto change(long sequence, String productId, ProductChangeEvent.Type type,
+            Integer inventory) {
+        return ProductChangeDto.builder().sequence(sequence).productId(productId).type(type).inventory(inventory)
+                .build();
+    }
+
+    /**
+     * Non-blocking response stream recording the inventory events written. A stream that is not ready blocks any
+     * write, like a client not reading would with blocking writes.
+     */
+    private static final class RecordingOutput extends ServletOutputStream {
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        private final CountDownLatch readyLatch = new CountDownLatch(1);
+
+        private volatile boolean ready;
+
+        private volatile WriteListener listener;
+
+        private RecordingOutput(boolean ready) {
+            this.ready = ready;
+            if (ready) {
+                readyLatch.countDown();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+            if (ready) {
+                try {
+                    writeListener.onWritePossible();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                readyLatch.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            synchronized (content) {
+                content.write(b, off, len);
+            }
+        }
+
+        private void becomeReady() throws IOException {
+            ready = true;
+            readyLatch.countDown();
+            listener.onWritePossible();
+        }
+
+        private List<String> events() throws IOException {
+            String written;
+            synchronized (content) {
+                written = new String(content.toByteArray(), StandardCharsets.UTF_8);
+            }
+            List<String> events = new ArrayList<>();
+            for (String event : written.split("\n\n")) {
+                if (event.startsWith("event:")) {
+                    String[] lines = event.split("\n");
+                    InventoryUpdateDto update = new ObjectMapper().readValue(lines[1].substring("data:".length()),
+                            InventoryUpdateDto.class);
+                    events.add(lines[0].substring("event:".length()) + " " + update.getProductId() + "="
+                            + update.getInventory());
+                }
+            }
+            return events;
+        }
+
+        private void await(int count) throws Exception {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (events().size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue("Expected " + count + " events, got " + events(), events().size() >= count);
+        }
+    }
+}
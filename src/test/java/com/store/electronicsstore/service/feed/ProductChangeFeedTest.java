@@ -0,0 +1,182 @@
+package com.store.electronicsstore.service.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductChangeEvent;
+import com.store.electronicsstore.domain.ProductChangeEventRepository;
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductChangeFeedTest {
+    private final Instant old = Instant.now().minus(Duration.ofMinutes(1));
+
+    @Mock
+    private ProductChangeEventRepository productChangeEventRepository;
+
+    @Mock
+    private ProductChangeOutbox productChangeOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StoreProperties storeProperties;
+
+    private ProductChangeFeed productChangeFeed;
+
+    private Consumer<List<ProductChangeEvent>> committedListener;
+
+    @Before
+    public void setup() {
+        storeProperties = new StoreProperties();
+        storeProperties.getFeed().setPollInterval(Duration.ofHours(1));
+        productChangeFeed = new ProductChangeFeed(storeProperties, productChangeEventRepository, productChangeOutbox,
+                transactionManager, new SimpleMeterRegistry());
+        productChangeFeed.start();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<List<ProductChangeEvent>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(productChangeOutbox).addListener(listener.capture());
+        committedListener = listener.getValue();
+    }
+
+    @After
+    public void tearDown() {
+        productChangeFeed.stop();
+    }
+
+    @Test
+    public void testRead_StopsInFrontOfRecentGap() {
+        //given
+        given(productChangeEventRepository.findAfter(eq(10L), any()))
+                .willReturn(Arrays.asList(event(11, old), event(12, old), event(14, Instant.now())));
+
+        //when
+        ProductChangeBatchDto batch = productChangeFeed.read(10, null);
+
+        //then
+        assertEquals(Arrays.asList(11L, 12L), sequences(batch));
+        assertEquals(12, batch.getNextOffset());
+    }
+
+    @Test
+    public void testRead_StopsInFrontOfNewGap_WhenChangeBehindItLooksOld() {
+        //given
+        given(productChangeEventRepository.findAfter(eq(10L), any()))
+                .willReturn(Arrays.asList(event(11, old), event(14, old)));
+
+        //when
+        ProductChangeBatchDto batch = productChangeFeed.read(10, null);
+
+        //then
+        assertEquals(Collections.singletonList(11L), sequences(batch));
+        assertEquals(11, batch.getNextOffset());
+    }
+
+    @Test
+    public void testRead_SkipsGapSeenLongerThanGapTimeout() throws Exception {
+        //given
+        storeProperties.getFeed().setGapTimeout(Duration.ofMillis(100));
+        given(productChangeEventRepository.findAfter(eq(10L), any()))
+                .willReturn(Arrays.asList(event(11, Instant.now()), event(14, Instant.now())));
+        assertEquals(11, productChangeFeed.read(10, null).getNextOffset());
+        Thread.sleep(150);
+
+        //when
+        ProductChangeBatchDto batch = productChangeFeed.read(10, null);
+
+        //then
+        assertEquals(Arrays.asList(11L, 14L), sequences(batch));
+        assertEquals(14, batch.getNextOffset());
+    }
+
+    @Test
+    public void testRead_PassesGapAnotherReadMovedPast() throws Exception {
+        //given
+        storeProperties.getFeed().setGapTimeout(Duration.ofMillis(100));
+        given(productChangeEventRepository.findAfter(eq(10L), any()))
+                .willReturn(Arrays.asList(event(11, old), event(14, old)));
+        given(productChangeEventRepository.findAfter(eq(11L), any()))
+                .willReturn(Collections.singletonList(event(14, old)));
+        productChangeFeed.read(10, null);
+        Thread.sleep(150);
+        productChangeFeed.read(10, null);
+
+        //when
+        ProductChangeBatchDto batch = productChangeFeed.read(11, null);
+
+        //then
+        assertEquals(Collections.singletonList(14L), sequences(batch));
+    }
+
+    @Test
+    public void testPoll_WithoutChanges_WaitsForNextCommit() throws Exception {
+        //given
+        given(productChangeEventRepository.findAfter(eq(10L), any()))
+                .willReturn(Collections.emptyList(), Collections.singletonList(event(11, Instant.now())));
+
+        //when
+        CompletableFuture<ProductChangeBatchDto> result = productChangeFeed.poll(10, null, Duration.ofSeconds(30));
+        boolean doneBeforeCommit = result.isDone();
+        committedListener.accept(Collections.singletonList(event(11, Instant.now())));
+
+        //then
+        assertFalse(doneBeforeCommit);
+        assertEquals(Collections.singletonList(11L), sequences(result.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testPoll_WithoutChanges_ReturnsEmptyBatchAfterWait() throws Exception {
+        //given
+        given(productChangeEventRepository.findAfter(eq(10L), any())).willReturn(Collections.emptyList());
+
+        //when
+        ProductChangeBatchDto batch = productChangeFeed.poll(10, null, Duration.ofMillis(100))
+                .get(5, TimeUnit.SECONDS);
+
+        //then
+        assertTrue(batch.getChanges().isEmpty());
+        assertEquals(10, batch.getNextOffset());
+    }
+
+    private static ProductChangeEvent event(long sequence, Instant createdAt) {
+        return ProductChangeEvent.builder()
+                .sequence(sequence)
+                .productId("A1013")
+                .type(ProductChangeEvent.Type.INVENTORY_CHANGED)
+                .inventory(2)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static List<Long> sequences(ProductChangeBatchDto batch) {
+        return batch.getChanges().stream().map(ProductChangeDto::getSequence).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,189 @@
+package com.store.electronicsstore.service.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.store.electronicsstore.domain.ProductChangeEvent.Type;
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductChangeBatchDto;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "store.feed.poll-interval=1h")
+public class ProductChangeOutboxTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+
+    @Autowired
+    private ProductChangeOutbox productChangeOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    private long offset;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        for (ProductChangeBatchDto batch = productChangeFeed.read(0, 1000); !batch.getChanges().isEmpty();
+                batch = productChangeFeed.read(batch.getNextOffset(), 1000)) {
+            offset = batch.getNextOffset();
+        }
+    }
+
+    @Test
+    public void testMutations_AppendChangesInCommitOrder() {
+        //given
+        productService.addNewProduct(product("feed1", 5));
+
+        //when
+        productService.updateQuantity("feed1", 4);
+        productService.adjustInventory("feed1", -1);
+        productService.updateProduct("feed1", product("feed1", 7));
+        productService.removeProduct("feed1");
+        ProductChangeBatchDto batch = productChangeFeed.read(offset, null);
+
+        //then
+        List<ProductChangeDto> changes = batch.getChanges();
+        assertEquals(Arrays.asList(Type.CREATED, Type.INVENTORY_CHANGED, Type.INVENTORY_CHANGED, Type.UPDATED,
+                Type.REMOVED), changes.stream().map(ProductChangeDto::getType).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(5, 4, 3, 7, null),
+                changes.stream().map(ProductChangeDto::getInventory).collect(Collectors.toList()));
+        assertEquals("Soundbar", changes.get(0).getName());
+        assertEquals(changes.get(4).getSequence(), batch.getNextOffset());
+    }
+
+    @Test
+    public void testBulkWrites_AppendChangesInRequestOrder() {
+        //given
+        List<ProductDto> products = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            products.add(product("bulk" + i, i));
+        }
+        productService.addNewProducts(products);
+
+        //when
+        List<String> removed = Arrays.asList("bulk7", "bulk3", "unknown", "bulk1100");
+        productService.removeProducts(removed);
+        ProductChangeBatchDto first = productChangeFeed.read(offset, 1000);
+        ProductChangeBatchDto batch = productChangeFeed.read(first.getNextOffset(), 1000);
+
+        //then
+        List<ProductChangeDto> changes = new ArrayList<>(first.getChanges());
+        changes.addAll(batch.getChanges());
+        assertEquals(1203, changes.size());
+        for (int i = 0; i < 1200; i++) {
+            assertEquals(Type.CREATED, changes.get(i).getType());
+            assertEquals("bulk" + i, changes.get(i).getProductId());
+            assertEquals(Integer.valueOf(i), changes.get(i).getInventory());
+        }
+        assertEquals(Arrays.asList("bulk7", "bulk3", "bulk1100"), changes.subList(1200, 1203).stream()
+                .map(ProductChangeDto::getProductId).collect(Collectors.toList()));
+        assertEquals(Type.REMOVED, changes.get(1202).getType());
+        assertEquals(changes.get(1202).getSequence(), batch.getNextOffset());
+    }
+
+    @Test
+    public void testRolledBackTransaction_AppendsNoChanges() {
+        //given
+        productService.addNewProduct(product("feed2", 5));
+        long afterCreate = productChangeFeed.read(offset, null).getNextOffset();
+
+        //when
+        new TransactionTemplate(transactionManager).execute(status -> {
+            productService.updateQuantity("feed2", 1);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        //then
+        assertTrue(productChangeFeed.read(afterCreate, null).getChanges().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecord_OutsideTransaction_ThrowsIllegalStateException() {
+        //when
+        productChangeOutbox.removed("feed3");
+    }
+
+    @Test
+    public void testPoll_CompletesWhenChangeCommits() throws Exception {
+        //given
+        productService.addNewProduct(product("feed4", 5));
+        long afterCreate = productChangeFeed.read(offset, null).getNextOffset();
+        CompletableFuture<ProductChangeBatchDto> result = productChangeFeed.poll(afterCreate, null,
+                Duration.ofSeconds(30));
+        boolean doneBeforeCommit = result.isDone();
+
+        //when
+        productService.updateQuantity("feed4", 9);
+
+        //then
+        assertFalse(doneBeforeCommit);
+        ProductChangeDto change = result.get(5, TimeUnit.SECONDS).getChanges().get(0);
+        assertEquals("feed4", change.getProductId());
+        assertEquals(Integer.valueOf(9), change.getInventory());
+    }
+
+    @Test
+    public void testGetChanges_ReturnsBatchAndNextOffset() throws Exception {
+        //given
+        productService.addNewProduct(product("feed5", 5));
+
+        //when
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/v1/products/changes")
+                .param("after", String.valueOf(offset)).param("wait", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].productId").value("feed5"))
+                .andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.changes[0].price").value(199.0))
+                .andExpect(jsonPath("$.nextOffset").isNumber());
+    }
+
+    private static ProductDto product(String productId, int inventory) {
+        return ProductDto.builder().productId(productId).name("Soundbar").manufacturer("Sony").price(199)
+                .inventory(inventory).build();
+    }
+}
@@ -0,0 +1,283 @@
+package com.store.electronicsstore.service.inventory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.InventoryJournalCheckpoint;
+import com.store.electronicsstore.domain.InventoryJournalCheckpointRepository;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.cache.CatalogVersion;
+import com.store.electronicsstore.service.cache.ProductCache;
+import com.store.electronicsstore.service.exceptions.BadRequestException;
+import com.store.electronicsstore.service.exceptions.InsufficientInventoryException;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+import com.store.electronicsstore.service.feed.ProductChangeOutbox;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InventoryWriteBehindTest {
+    private final String productId = "A1013";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private InventoryJournalCheckpointRepository checkpointRepository;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private ProductChangeOutbox productChangeOutbox;
+
+    @Mock
+    private ProductChangeFeed productChangeFeed;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StoreProperties storeProperties;
+
+    private File journalDir;
+
+    @Before
+    public void setup() throws Exception {
+        journalDir = temporaryFolder.newFolder("journal");
+        storeProperties = new StoreProperties();
+        StoreProperties.WriteBehind settings = storeProperties.getInventory().getWriteBehind();
+        settings.setEnabled(true);
+        settings.setJournalDir(journalDir.getPath());
+        settings.setFlushInterval(Duration.ofHours(1));
+        given(checkpointRepository.findById("inventory")).willReturn(Optional.empty());
+        given(productRepository.findInventoryByProductId(productId)).willReturn(Optional.of(10));
+    }
+
+    @Test
+    public void testAdjust_SumsAdjustmentsIntoOneUpdatePerFlush() throws Exception {
+        //given
+        InventoryWriteBehind writeBehind = createStarted();
+        given(productRepository.adjustInventory(productId, -3)).willReturn(1);
+        given(productRepository.findInventories(Collections.singletonList(productId)))
+                .willReturn(Collections.singletonList(new Object[] { productId, 7 }));
+
+        //when
+        writeBehind.adjust(productId, -1);
+        int inventory = writeBehind.adjust(productId, -2);
+        writeBehind.flush();
+
+        //then
+        assertEquals(7, inventory);
+        assertEquals(7, writeBehind.available(productId).getAsInt());
+        verify(productRepository).adjustInventory(productId, -3);
+        verify(checkpointRepository).save(new InventoryJournalCheckpoint("inventory", 1));
+        verify(productCache).invalidate(productId);
+        verify(productChangeOutbox).inventoryChanged(productId, 7);
+        assertEquals(1, journalDir.list().length);
+    }
+
+    @Test
+    public void testFlush_WhenInventoryWasLoweredConcurrently_ThenLeavesZeroItemsWithoutOverwriting()
+            throws Exception {
+        //given
+        InventoryWriteBehind writeBehind = createStarted();
+        given(productRepository.adjustInventory(productId, -3)).willReturn(0);
+        given(productRepository.adjustInventoryAtLeastZero(productId, -3)).willReturn(1);
+        given(productRepository.findInventories(Collections.singletonList(productId)))
+                .willReturn(Collections.singletonList(new Object[] { productId, 0 }));
+
+        //when
+        writeBehind.adjust(productId, -3);
+        writeBehind.flush();
+
+        //then
+        verify(productRepository).adjustInventoryAtLeastZero(productId, -3);
+        verify(productRepository, never()).updateInventory(any(), anyInt());
+        verify(checkpointRepository).save(new InventoryJournalCheckpoint("inventory", 1));
+        assertEquals(0, writeBehind.available(productId).getAsInt());
+    }
+
+    @Test
+    public void testStart_WhenJournaledAdjustmentsExceedAnInt_ThenReplaysThemInIntSizedSteps() throws Exception {
+        //given
+        InventoryJournal journal = new InventoryJournal(journalDir.toPath(), "inventory", false);
+        journal.open(0);
+        journal.append(productId, Integer.MAX_VALUE);
+        journal.append(productId, Integer.MAX_VALUE);
+        journal.append(productId, 2);
+        journal.close();
+        given(productRepository.adjustInventory(eq(productId), anyInt())).willReturn(1);
+
+        //when
+        createStarted();
+
+        //then
+        verify(productRepository, times(2)).adjustInventory(productId, Integer.MAX_VALUE);
+        verify(productRepository).adjustInventory(productId, 2);
+        verify(checkpointRepository).save(new InventoryJournalCheckpoint("inventory", 1));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testAdjust_WhenInventoryWouldExceedAnInt_ThenThrowsBadRequestException() throws Exception {
+        //given
+        InventoryWriteBehind writeBehind = createStarted();
+
+        //when
+        writeBehind.adjust(productId, Integer.MAX_VALUE);
+    }
+
+    @Test(expected = InsufficientInventoryException.class)
+    public void testAdjust_WhenInventoryWouldDropBelowZero_ThenThrowsInsufficientInventoryException()
+            throws Exception {
+        //given
+        InventoryWriteBehind writeBehind = createStarted();
+
+        //when
+        writeBehind.adjust(productId, -11);
+    }
+
+    @Test
+    public void testStart_ReplaysAdjustmentsLeftInTheJournal() throws Exception {
+        //given
+        createStarted().adjust(productId, -4);
+        given(productRepository.adjustInventory(productId, -4)).willReturn(1);
+
+        //when
+        createStarted();
+
+        //then
+        verify(productRepository).adjustInventory(productId, -4);
+        verify(checkpointRepository).save(new InventoryJournalCheckpoint("inventory", 1));
+    }
+
+    @Test
+    public void testStart_SkipsSegmentsCoveredByTheCheckpoint() throws Exception {
+        //given
+        createStarted().adjust(productId, -4);
+        given(checkpointRepository.findById("inventory"))
+                .willReturn(Optional.of(new InventoryJournalCheckpoint("inventory", 1)));
+
+        //when
+        createStarted();
+
+        //then
+        verify(productRepository, never()).adjustInventory(any(), anyInt());
+    }
+
+    @Test
+    public void testAdjust_ConcurrentWithFsync_JournalsEveryAcknowledgedAdjustment() throws Exception {
+        //given
+        given(productRepository.findInventoryByProductId(productId)).willReturn(Optional.of(1000));
+        given(productRepository.adjustInventory(productId, -800)).willReturn(1);
+        InventoryWriteBehind writeBehind = createStarted();
+        ExecutorService adjusters = Executors.newFixedThreadPool(8);
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            adjusters.execute(() -> {
+                for (int j = 0; j < 100; j++) {
+                    writeBehind.adjust(productId, -1);
+                }
+            });
+        }
+        adjusters.shutdown();
+        assertTrue(adjusters.awaitTermination(10, TimeUnit.SECONDS));
+        createStarted();
+
+        //then
+        assertEquals(200, writeBehind.available(productId).getAsInt());
+        verify(productRepository).adjustInventory(productId, -800);
+    }
+
+    @Test
+    public void testAdjust_ConcurrentWithFlushes_NeverReservesMoreThanTheInventory() throws Exception {
+        //given
+        AtomicInteger stored = new AtomicInteger(4);
+        AtomicBoolean oversold = new AtomicBoolean();
+        storeProperties.getInventory().getWriteBehind().setFsync(false);
+        given(productRepository.findInventoryByProductId(productId))
+                .willAnswer(invocation -> Optional.of(stored.get()));
+        given(productRepository.findInventories(anyList()))
+                .willAnswer(invocation -> Collections.singletonList(new Object[] { productId, stored.get() }));
+        given(productRepository.adjustInventory(eq(productId), anyInt())).willAnswer(invocation -> {
+            int delta = invocation.getArgument(1);
+            if (stored.addAndGet(delta) < 0) {
+                oversold.set(true);
+            }
+            return 1;
+        });
+        InventoryWriteBehind writeBehind = createStarted();
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        AtomicBoolean adjusting = new AtomicBoolean(true);
+        ExecutorService adjusters = Executors.newFixedThreadPool(8);
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            adjusters.execute(() -> {
+                while (adjusting.get()) {
+                    try {
+                        writeBehind.adjust(productId, -1);
+                    } catch (InsufficientInventoryException e) {
+                        continue;
+                    }
+                    maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+                    held.decrementAndGet();
+                    writeBehind.adjust(productId, 1);
+                }
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (System.nanoTime() < deadline) {
+            writeBehind.flush();
+        }
+        adjusting.set(false);
+        adjusters.shutdown();
+        assertTrue(adjusters.awaitTermination(5, TimeUnit.SECONDS));
+        writeBehind.flush();
+
+        //then
+        assertTrue("Held " + maxHeld.get() + " of 4 items at once", maxHeld.get() <= 4);
+        assertFalse(oversold.get());
+        assertEquals(4, stored.get());
+        assertEquals(4, writeBehind.available(productId).getAsInt());
+    }
+
+    private InventoryWriteBehind createStarted() throws Exception {
+        InventoryWriteBehind writeBehind = new InventoryWriteBehind(storeProperties, productRepository,
+                checkpointRepository, productCache, new CatalogVersion(storeProperties, productChangeFeed),
+                productChangeOutbox, transactionManager);
+        writeBehind.start();
+        return writeBehind;
+    }
+}
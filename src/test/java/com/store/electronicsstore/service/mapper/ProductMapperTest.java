@@ -0,0 +1,57 @@
+package com.store.electronicsstore.service.mapper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.PropertyMap;
+
+import com.store.electronicsstore.domain.Product;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+public class ProductMapperTest {
+    private final Product product = Product.builder()
+            .id(7L).productId("A1013").name("name").manufacturer("manufacturer").price(25).inventory(2).build();
+    private final ProductDto productDto = ProductDto.builder()
+            .id(7L).productId("A1013").name("name").manufacturer("manufacturer").price(25).inventory(2).build();
+
+    @Test
+    public void testToDto_MatchesModelMapper() {
+        //given
+        ProductMapper productMapper = new ProductMapper(new ModelMapper());
+
+        //then
+        assertEquals(new ModelMapper().map(product, ProductDto.class), productMapper.toDto(product));
+        assertEquals(productDto, productMapper.toDto(product));
+    }
+
+    @Test
+    public void testToEntity_MatchesModelMapper() {
+        //given
+        ProductMapper productMapper = new ProductMapper(new ModelMapper());
+
+        //then
+        assertEquals(new ModelMapper().map(productDto, Product.class), productMapper.toEntity(productDto));
+        assertEquals(product, productMapper.toEntity(productDto));
+    }
+
+    @Test
+    public void testToDto_WhenPropertyMapIsRegistered_ThenAppliesIt() {
+        //given
+        ModelMapper modelMapper = new ModelMapper();
+        modelMapper.addMappings(new PropertyMap<Product, ProductDto>() {
+            @Override
+            protected void configure() {
+                map().setName(source.getManufacturer());
+            }
+        });
+        ProductMapper productMapper = new ProductMapper(modelMapper);
+
+        //when
+        ProductDto actualProductDto = productMapper.toDto(product);
+
+        //then
+        assertEquals("manufacturer", actualProductDto.getName());
+        assertEquals("A1013", productMapper.toEntity(productDto).getProductId());
+    }
+}
@@ -0,0 +1,106 @@
+package com.store.electronicsstore.service.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.store.electronicsstore.config.StoreProperties;
+import com.store.electronicsstore.domain.ProductChangeEvent.Type;
+import com.store.electronicsstore.domain.ProductRepository;
+import com.store.electronicsstore.service.dto.ProductChangeDto;
+import com.store.electronicsstore.service.feed.ProductChangeFeed;
+
+public class ProductTextIndexTest {
+    private ProductTextIndex productTextIndex;
+
+    @Before
+    public void setup() {
+        productTextIndex = new ProductTextIndex(new StoreProperties(), mock(ProductRepository.class),
+                mock(ProductChangeFeed.class), mock(PlatformTransactionManager.class));
+        productTextIndex.apply(Arrays.asList(
+                change(1, "A1", Type.CREATED, "Smart TV 55\" OLED", "Samsung"),
+                change(2, "A2", Type.CREATED, "Smart TV 65\" QLED", "Samsung"),
+                change(3, "A3", Type.CREATED, "OLED TV 55\"", "LG"),
+                change(4, "A4", Type.CREATED, "Galaxy S10", "Samsung")));
+    }
+
+    @Test
+    public void testSearch_RanksProductsMatchingMoreAndRarerTokensFirst() {
+        //when
+        List<String> productIds = productTextIndex.search("samsung 55 oled", 10);
+
+        //then
+        assertEquals(Arrays.asList("A1", "A3", "A2", "A4"), productIds);
+    }
+
+    @Test
+    public void testSearch_IsCaseInsensitiveAndHonoursLimit() {
+        //when
+        List<String> productIds = productTextIndex.search("GALAXY", 1);
+
+        //then
+        assertEquals(Collections.singletonList("A4"), productIds);
+        assertEquals(1, productTextIndex.search("tv", 1).size());
+    }
+
+    @Test
+    public void testApply_UpdateReplacesTokensOfExistingProduct() {
+        //when
+        productTextIndex.apply(Collections.singletonList(change(5, "A4", Type.UPDATED, "Galaxy Tab", "Samsung")));
+
+        //then
+        assertTrue(productTextIndex.search("s10", 10).isEmpty());
+        assertEquals(Collections.singletonList("A4"), productTextIndex.search("tab", 10));
+        assertEquals(4, productTextIndex.size());
+    }
+
+    @Test
+    public void testApply_RemoveReusesDocumentNumber() {
+        //when
+        productTextIndex.apply(Arrays.asList(
+                change(5, "A1", Type.REMOVED, null, null),
+                change(6, "A5", Type.CREATED, "Soundbar", "Sony")));
+
+        //then
+        assertEquals(Arrays.asList("A3", "A2"), productTextIndex.search("55 qled oled", 10).subList(0, 2));
+        assertEquals(Collections.singletonList("A5"), productTextIndex.search("sony", 10));
+        assertEquals(4, productTextIndex.size());
+    }
+
+    @Test
+    public void testApply_SkipsChangesAtOrBeforeTheAppliedPosition() {
+        //given
+        productTextIndex.apply(Collections.singletonList(change(6, "A4", Type.UPDATED, "Galaxy Tab", "Samsung")));
+
+        //when
+        productTextIndex.apply(Arrays.asList(
+                change(5, "A4", Type.UPDATED, "Galaxy S10", "Samsung"),
+                change(6, "A4", Type.REMOVED, null, null)));
+
+        //then
+        assertEquals(Collections.singletonList("A4"), productTextIndex.search("tab", 10));
+        assertTrue(productTextIndex.search("s10", 10).isEmpty());
+    }
+
+    @Test
+    public void testApply_InventoryChangeKeepsIndexedFields() {
+        //when
+        productTextIndex.apply(Collections.singletonList(change(5, "A4", Type.INVENTORY_CHANGED, null, null)));
+
+        //then
+        assertEquals(Collections.singletonList("A4"), productTextIndex.search("galaxy", 10));
+    }
+
+    private ProductChangeDto change(long sequence, String productId, Type type, String name, String manufacturer) {
+        return ProductChangeDto.builder().sequence(sequence).productId(productId).type(type).name(name)
+                .manufacturer(manufacturer).build();
+    }
+}
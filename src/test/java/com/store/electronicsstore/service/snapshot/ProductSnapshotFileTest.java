@@ -0,0 +1,124 @@
+package com.store.electronicsstore.service.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.store.electronicsstore.service.dto.ProductDto;
+
+public class ProductSnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFind_ReturnsWrittenProducts() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("products.snapshot");
+        Instant writtenAt = Instant.ofEpochMilli(1_500_000_000_000L);
+        try (ProductSnapshotFile.Writer writer = new ProductSnapshotFile.Writer(path)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.add(product("P" + i, i));
+            }
+            writer.add(ProductDto.builder().id(5000L).version(2).productId("Ünïcode").name("Fernseher").build());
+            writer.finish(42, writtenAt);
+        }
+
+        //when
+        ProductSnapshotFile snapshot = ProductSnapshotFile.open(path);
+
+        //then
+        assertEquals(1001, snapshot.size());
+        assertEquals(42, snapshot.getFeedOffset());
+        assertEquals(writtenAt, snapshot.getWrittenAt());
+        assertEquals(product("P0", 0), snapshot.find("P0"));
+        assertEquals(product("P999", 999), snapshot.find("P999"));
+        ProductDto unicode = snapshot.find("Ünïcode");
+        assertEquals("Fernseher", unicode.getName());
+        assertNull(unicode.getManufacturer());
+        assertNull(snapshot.find("P1000"));
+    }
+
+    @Test
+    public void testCopy_KeepsRecordsOfPreviousSnapshot() throws IOException {
+        //given
+        Path previousPath = temporaryFolder.getRoot().toPath().resolve("previous.snapshot");
+        try (ProductSnapshotFile.Writer writer = new ProductSnapshotFile.Writer(previousPath)) {
+            writer.add(product("A1", 1));
+            writer.add(product("B2", 2));
+            writer.finish(10, Instant.now());
+        }
+        ProductSnapshotFile previous = ProductSnapshotFile.open(previousPath);
+        Path path = temporaryFolder.getRoot().toPath().resolve("products.snapshot");
+
+        //when
+        try (ProductSnapshotFile.Writer writer = new ProductSnapshotFile.Writer(path)) {
+            previous.forEach((productId, position) -> {
+                if (!productId.equals("B2")) {
+                    writer.copy(previous, productId, position);
+                }
+            });
+            writer.add(product("C3", 3));
+            writer.finish(20, Instant.now());
+        }
+
+        //then
+        ProductSnapshotFile snapshot = ProductSnapshotFile.open(path);
+        assertEquals(2, snapshot.size());
+        assertEquals(product("A1", 1), snapshot.find("A1"));
+        assertNull(snapshot.find("B2"));
+        assertEquals(product("C3", 3), snapshot.find("C3"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpen_TruncatedFile_ThrowsIOException() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("products.snapshot");
+        try (ProductSnapshotFile.Writer writer = new ProductSnapshotFile.Writer(path)) {
+            writer.add(product("A1", 1));
+            writer.finish(10, Instant.now());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        //when
+        ProductSnapshotFile.open(path);
+    }
+
+    @Test
+    public void testClose_KeepsMappingUntilTheLastReaderReleasesIt() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("products.snapshot");
+        try (ProductSnapshotFile.Writer writer = new ProductSnapshotFile.Writer(path)) {
+            writer.add(product("A1", 1));
+            writer.finish(10, Instant.now());
+        }
+        ProductSnapshotFile snapshot = ProductSnapshotFile.open(path);
+        assertTrue(snapshot.acquire());
+
+        //when
+        snapshot.close();
+
+        //then
+        assertEquals(product("A1", 1), snapshot.find("A1"));
+        snapshot.release();
+        assertFalse(snapshot.acquire());
+    }
+
+    private static ProductDto product(String productId, int inventory) {
+        return ProductDto.builder().id(1000L + inventory).version(inventory % 3).productId(productId)
+                .name("TV " + productId).manufacturer("Sony").price(99.5f + inventory).inventory(inventory).build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.store.electronicsstore.service.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.store.electronicsstore.service.ProductService;
+import com.store.electronicsstore.service.dto.ProductDto;
+
+/**
+ * Rewrites the snapshot after every change, so changed products are back in it right away.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "store.snapshot.enabled=true",
+        "store.snapshot.path=" + ProductSnapshotTest.PATH,
+        "store.snapshot.max-changed-products=1" })
+public class ProductSnapshotTest {
+    static final String PATH = "target/snapshot-test/products.snapshot";
+
+    @Autowired
+    private ProductSnapshot productSnapshot;
+
+    @Autowired
+    private ProductService productService;
+
+    @BeforeClass
+    public static void deleteSnapshot() throws IOException {
+        // a snapshot of a previous run points into the change feed of another database
+        Files.deleteIfExists(Paths.get(PATH));
+    }
+
+    @Test
+    public void testFind_ServesChangedProductsFromDatabaseUntilRewritten() throws Exception {
+        //given
+        productService.addNewProduct(ProductDto.builder()
+                .productId("snap1").name("Soundbar").manufacturer("Sony").price(199).inventory(5).build());
+        ProductDto snapshotted = await(() -> productSnapshot.find("snap1"));
+
+        //when
+        productService.updateQuantity("snap1", 2);
+        ProductDto afterUpdate = productSnapshot.find("snap1");
+        ProductDto rewritten = await(() -> productSnapshot.find("snap1"));
+
+        //then
+        assertEquals("Soundbar", snapshotted.getName());
+        assertEquals(5, snapshotted.getInventory());
+        assertNull(afterUpdate);
+        assertEquals(2, rewritten.getInventory());
+        assertEquals(productService.getProductRevision("snap1"), rewritten.getRevision());
+        Path path = Paths.get(PATH);
+        assertEquals(2, ProductSnapshotFile.open(path).find("snap1").getInventory());
+    }
+
+    @Test
+    public void testFind_UnknownProduct_ReturnsNull() {
+        //then
+        assertNull(productSnapshot.find("snap-unknown"));
+    }
+
+    private static ProductDto await(Supplier<ProductDto> lookup) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        ProductDto product = lookup.get();
+        while (product == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            product = lookup.get();
+        }
+        assertNotNull("Product did not show up in the snapshot", product);
+        return product;
+    }
+}